@@ -0,0 +1,13 @@
+package android.app;
+
+public class ActivityManager {
+    public static void getMyMemoryState(RunningAppProcessInfo outState) {
+    }
+
+    public static class RunningAppProcessInfo {
+        public static final int IMPORTANCE_FOREGROUND = 100;
+        public static final int IMPORTANCE_VISIBLE = 200;
+
+        public int importance;
+    }
+}
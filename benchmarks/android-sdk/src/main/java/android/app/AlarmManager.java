@@ -0,0 +1,24 @@
+package android.app;
+
+public class AlarmManager {
+    public static final int ELAPSED_REALTIME_WAKEUP = 2;
+
+    public void set(int type, long triggerAtMillis, PendingIntent operation) {
+    }
+
+    public void setExact(int type, long triggerAtMillis, PendingIntent operation) {
+    }
+
+    public void setAndAllowWhileIdle(int type, long triggerAtMillis, PendingIntent operation) {
+    }
+
+    public void setExactAndAllowWhileIdle(int type, long triggerAtMillis, PendingIntent operation) {
+    }
+
+    public boolean canScheduleExactAlarms() {
+        return false;
+    }
+
+    public void cancel(PendingIntent operation) {
+    }
+}
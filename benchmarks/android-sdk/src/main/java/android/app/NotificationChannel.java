@@ -0,0 +1,12 @@
+package android.app;
+
+public class NotificationChannel {
+    public NotificationChannel(String id, CharSequence name, int importance) {
+    }
+
+    public void setDescription(String description) {
+    }
+
+    public void enableVibration(boolean vibration) {
+    }
+}
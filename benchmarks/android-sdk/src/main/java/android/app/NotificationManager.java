@@ -0,0 +1,24 @@
+package android.app;
+
+public class NotificationManager {
+    public static final int IMPORTANCE_MIN = 1;
+    public static final int IMPORTANCE_LOW = 2;
+    public static final int IMPORTANCE_DEFAULT = 3;
+    public static final int IMPORTANCE_HIGH = 4;
+
+    public void notify(int id, Notification notification) {
+    }
+
+    public void notify(String tag, int id, Notification notification) {
+    }
+
+    public void cancel(int id) {
+    }
+
+    public void createNotificationChannel(NotificationChannel channel) {
+    }
+
+    public NotificationChannel getNotificationChannel(String channelId) {
+        return null;
+    }
+}
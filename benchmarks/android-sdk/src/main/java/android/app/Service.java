@@ -0,0 +1,21 @@
+package android.app;
+
+import android.content.ContextWrapper;
+import android.content.Intent;
+import android.os.IBinder;
+
+public abstract class Service extends ContextWrapper {
+    public static final int START_STICKY = 1;
+
+    public void onCreate() {
+    }
+
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        return START_STICKY;
+    }
+
+    public void onDestroy() {
+    }
+
+    public abstract IBinder onBind(Intent intent);
+}
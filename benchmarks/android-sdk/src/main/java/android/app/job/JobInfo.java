@@ -0,0 +1,37 @@
+package android.app.job;
+
+import android.content.ComponentName;
+
+public class JobInfo {
+    public static final int NETWORK_TYPE_ANY = 1;
+    public static final int BACKOFF_POLICY_EXPONENTIAL = 1;
+
+    public static class Builder {
+        public Builder(int jobId, ComponentName service) {
+        }
+
+        public Builder setRequiredNetworkType(int networkType) {
+            return this;
+        }
+
+        public Builder setBackoffCriteria(long initialBackoffMillis, int backoffPolicy) {
+            return this;
+        }
+
+        public Builder setPersisted(boolean persisted) {
+            return this;
+        }
+
+        public Builder setPeriodic(long intervalMillis) {
+            return this;
+        }
+
+        public Builder setPeriodic(long intervalMillis, long flexMillis) {
+            return this;
+        }
+
+        public JobInfo build() {
+            return new JobInfo();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package android.content;
+
+import android.content.pm.PackageManager;
+import android.os.Handler;
+
+import java.io.File;
+
+/**
+ * Все методы с пустой реализацией: бенчмарк переопределяет только нужные
+ */
+public abstract class Context {
+    public static final String NOTIFICATION_SERVICE = "notification";
+    public static final String CONNECTIVITY_SERVICE = "connectivity";
+    public static final String POWER_SERVICE = "power";
+    public static final String ALARM_SERVICE = "alarm";
+    public static final String JOB_SCHEDULER_SERVICE = "jobscheduler";
+    public static final int MODE_PRIVATE = 0;
+    public static final int BIND_AUTO_CREATE = 1;
+    public static final int RECEIVER_NOT_EXPORTED = 4;
+
+    public Context getApplicationContext() {
+        return this;
+    }
+
+    public Object getSystemService(String name) {
+        return null;
+    }
+
+    public SharedPreferences getSharedPreferences(String name, int mode) {
+        return null;
+    }
+
+    public File getFilesDir() {
+        return null;
+    }
+
+    public File getCacheDir() {
+        return null;
+    }
+
+    public String getPackageName() {
+        return "com.pushsdk.benchmarks";
+    }
+
+    public PackageManager getPackageManager() {
+        return null;
+    }
+
+    public void startActivity(Intent intent) {
+    }
+
+    public ComponentName startService(Intent service) {
+        return null;
+    }
+
+    public boolean bindService(Intent service, ServiceConnection connection, int flags) {
+        return false;
+    }
+
+    public void unbindService(ServiceConnection connection) {
+    }
+
+    public void sendBroadcast(Intent intent) {
+    }
+
+    public Intent registerReceiver(BroadcastReceiver receiver, IntentFilter filter) {
+        return null;
+    }
+
+    public Intent registerReceiver(BroadcastReceiver receiver, IntentFilter filter, String permission, Handler scheduler) {
+        return null;
+    }
+
+    public Intent registerReceiver(BroadcastReceiver receiver, IntentFilter filter, String permission, Handler scheduler, int flags) {
+        return null;
+    }
+
+    public void unregisterReceiver(BroadcastReceiver receiver) {
+    }
+}
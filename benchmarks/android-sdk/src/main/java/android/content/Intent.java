@@ -0,0 +1,68 @@
+package android.content;
+
+import android.net.Uri;
+
+public class Intent {
+    public static final String ACTION_VIEW = "android.intent.action.VIEW";
+    public static final int FLAG_ACTIVITY_NEW_TASK = 0x10000000;
+
+    public Intent() {
+    }
+
+    public Intent(String action) {
+    }
+
+    public Intent(String action, Uri uri) {
+    }
+
+    public Intent(Context context, Class<?> cls) {
+    }
+
+    public Intent setAction(String action) {
+        return this;
+    }
+
+    public String getAction() {
+        return null;
+    }
+
+    public Intent setPackage(String packageName) {
+        return this;
+    }
+
+    public Intent addFlags(int flags) {
+        return this;
+    }
+
+    public Intent putExtra(String name, String value) {
+        return this;
+    }
+
+    public Intent putExtra(String name, long value) {
+        return this;
+    }
+
+    public Intent putExtra(String name, int value) {
+        return this;
+    }
+
+    public Intent putExtra(String name, boolean value) {
+        return this;
+    }
+
+    public String getStringExtra(String name) {
+        return null;
+    }
+
+    public long getLongExtra(String name, long defaultValue) {
+        return defaultValue;
+    }
+
+    public int getIntExtra(String name, int defaultValue) {
+        return defaultValue;
+    }
+
+    public boolean getBooleanExtra(String name, boolean defaultValue) {
+        return defaultValue;
+    }
+}
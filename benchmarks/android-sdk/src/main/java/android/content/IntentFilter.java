@@ -0,0 +1,9 @@
+package android.content;
+
+public class IntentFilter {
+    public IntentFilter(String action) {
+    }
+
+    public void addAction(String action) {
+    }
+}
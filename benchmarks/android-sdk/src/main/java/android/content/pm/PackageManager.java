@@ -0,0 +1,10 @@
+package android.content.pm;
+
+import android.content.ComponentName;
+
+public abstract class PackageManager {
+    public abstract ServiceInfo getServiceInfo(ComponentName component, int flags) throws NameNotFoundException;
+
+    public static class NameNotFoundException extends Exception {
+    }
+}
@@ -0,0 +1,24 @@
+package android.graphics;
+
+public class Bitmap {
+    public enum Config {
+        ARGB_8888,
+        RGB_565
+    }
+
+    public int getWidth() {
+        return 0;
+    }
+
+    public int getHeight() {
+        return 0;
+    }
+
+    public int getByteCount() {
+        return 0;
+    }
+
+    public int getAllocationByteCount() {
+        return 0;
+    }
+}
@@ -0,0 +1,25 @@
+package android.graphics;
+
+import java.io.InputStream;
+
+public class BitmapFactory {
+    public static Bitmap decodeStream(InputStream stream) {
+        return null;
+    }
+
+    public static Bitmap decodeFile(String pathName, Options options) {
+        return null;
+    }
+
+    public static Bitmap decodeByteArray(byte[] data, int offset, int length, Options options) {
+        return null;
+    }
+
+    public static class Options {
+        public boolean inJustDecodeBounds;
+        public int inSampleSize;
+        public int outWidth;
+        public int outHeight;
+        public Bitmap.Config inPreferredConfig;
+    }
+}
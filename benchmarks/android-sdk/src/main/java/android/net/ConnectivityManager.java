@@ -0,0 +1,32 @@
+package android.net;
+
+public class ConnectivityManager {
+    public void registerDefaultNetworkCallback(NetworkCallback callback) {
+    }
+
+    public void unregisterNetworkCallback(NetworkCallback callback) {
+    }
+
+    public boolean isActiveNetworkMetered() {
+        return false;
+    }
+
+    public Network getActiveNetwork() {
+        return null;
+    }
+
+    public NetworkCapabilities getNetworkCapabilities(Network network) {
+        return null;
+    }
+
+    public static class NetworkCallback {
+        public void onAvailable(Network network) {
+        }
+
+        public void onLost(Network network) {
+        }
+
+        public void onCapabilitiesChanged(Network network, NetworkCapabilities capabilities) {
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package android.net;
+
+public class Uri {
+    public static Uri parse(String uriString) {
+        return new Uri();
+    }
+}
@@ -0,0 +1,22 @@
+package android.os;
+
+public class Build {
+    public static final String MODEL = "jvm";
+
+    public static class VERSION {
+        // Ветки для старых версий Android
+        public static final int SDK_INT = 0;
+        public static final String RELEASE = "";
+    }
+
+    public static class VERSION_CODES {
+        public static final int KITKAT = 19;
+        public static final int M = 23;
+        public static final int N = 24;
+        public static final int O = 26;
+        public static final int P = 28;
+        public static final int Q = 29;
+        public static final int S = 31;
+        public static final int TIRAMISU = 33;
+    }
+}
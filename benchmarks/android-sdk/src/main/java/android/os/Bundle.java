@@ -0,0 +1,40 @@
+package android.os;
+
+import java.util.ArrayList;
+
+public class Bundle {
+    public void putString(String key, String value) {
+    }
+
+    public String getString(String key) {
+        return null;
+    }
+
+    public void putInt(String key, int value) {
+    }
+
+    public int getInt(String key) {
+        return 0;
+    }
+
+    public void putLong(String key, long value) {
+    }
+
+    public long getLong(String key) {
+        return 0;
+    }
+
+    public void putBoolean(String key, boolean value) {
+    }
+
+    public boolean getBoolean(String key) {
+        return false;
+    }
+
+    public void putStringArrayList(String key, ArrayList<String> value) {
+    }
+
+    public ArrayList<String> getStringArrayList(String key) {
+        return null;
+    }
+}
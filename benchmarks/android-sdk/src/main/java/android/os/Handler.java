@@ -0,0 +1,33 @@
+package android.os;
+
+/**
+ * Задачи не выполняются: таймеры SDK в бенчмарках не нужны
+ */
+public class Handler {
+    public Handler() {
+    }
+
+    public Handler(Looper looper) {
+    }
+
+    public void handleMessage(Message message) {
+    }
+
+    public boolean post(Runnable r) {
+        return true;
+    }
+
+    public boolean postDelayed(Runnable r, long delayMillis) {
+        return true;
+    }
+
+    public void removeCallbacks(Runnable r) {
+    }
+
+    public void removeCallbacksAndMessages(Object token) {
+    }
+
+    public Looper getLooper() {
+        return null;
+    }
+}
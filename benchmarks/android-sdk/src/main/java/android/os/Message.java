@@ -0,0 +1,19 @@
+package android.os;
+
+public class Message {
+    public int what;
+    public Messenger replyTo;
+
+    public static Message obtain(Handler handler, int what) {
+        Message message = new Message();
+        message.what = what;
+        return message;
+    }
+
+    public Bundle getData() {
+        return new Bundle();
+    }
+
+    public void setData(Bundle data) {
+    }
+}
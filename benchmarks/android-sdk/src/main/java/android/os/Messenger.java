@@ -0,0 +1,16 @@
+package android.os;
+
+public class Messenger {
+    public Messenger(Handler target) {
+    }
+
+    public Messenger(IBinder target) {
+    }
+
+    public void send(Message message) throws RemoteException {
+    }
+
+    public IBinder getBinder() {
+        return null;
+    }
+}
@@ -0,0 +1,34 @@
+package android.os;
+
+public class PowerManager {
+    public static final int PARTIAL_WAKE_LOCK = 1;
+    public static final String ACTION_POWER_SAVE_MODE_CHANGED = "android.os.action.POWER_SAVE_MODE_CHANGED";
+    public static final String ACTION_DEVICE_IDLE_MODE_CHANGED = "android.os.action.DEVICE_IDLE_MODE_CHANGED";
+
+    public boolean isPowerSaveMode() {
+        return false;
+    }
+
+    public boolean isDeviceIdleMode() {
+        return false;
+    }
+
+    public WakeLock newWakeLock(int levelAndFlags, String tag) {
+        return new WakeLock();
+    }
+
+    public static class WakeLock {
+        public void setReferenceCounted(boolean value) {
+        }
+
+        public void acquire(long timeout) {
+        }
+
+        public void release() {
+        }
+
+        public boolean isHeld() {
+            return false;
+        }
+    }
+}
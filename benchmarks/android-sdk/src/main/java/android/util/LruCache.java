@@ -0,0 +1,62 @@
+package android.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class LruCache<K, V> {
+    private final LinkedHashMap<K, V> map = new LinkedHashMap<>(16, 0.75f, true);
+    private final int maxSize;
+    private int size;
+
+    public LruCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    protected int sizeOf(K key, V value) {
+        return 1;
+    }
+
+    protected void entryRemoved(boolean evicted, K key, V oldValue, V newValue) {
+    }
+
+    public final synchronized V get(K key) {
+        return map.get(key);
+    }
+
+    public final synchronized V put(K key, V value) {
+        V previous = map.put(key, value);
+        size += sizeOf(key, value);
+        if (previous != null) {
+            size -= sizeOf(key, previous);
+            entryRemoved(false, key, previous, value);
+        }
+        trimToSize(maxSize);
+        return previous;
+    }
+
+    public final synchronized V remove(K key) {
+        V previous = map.remove(key);
+        if (previous != null) {
+            size -= sizeOf(key, previous);
+            entryRemoved(false, key, previous, null);
+        }
+        return previous;
+    }
+
+    public final synchronized int size() {
+        return size;
+    }
+
+    public final void evictAll() {
+        trimToSize(-1);
+    }
+
+    private synchronized void trimToSize(int max) {
+        while (size > max && !map.isEmpty()) {
+            Map.Entry<K, V> eldest = map.entrySet().iterator().next();
+            map.remove(eldest.getKey());
+            size -= sizeOf(eldest.getKey(), eldest.getValue());
+            entryRemoved(true, eldest.getKey(), eldest.getValue(), null);
+        }
+    }
+}
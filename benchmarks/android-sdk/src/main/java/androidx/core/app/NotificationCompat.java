@@ -0,0 +1,118 @@
+package androidx.core.app;
+
+import android.app.Notification;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.graphics.Bitmap;
+
+public class NotificationCompat {
+    public static final int PRIORITY_MIN = -2;
+    public static final int PRIORITY_LOW = -1;
+    public static final int PRIORITY_DEFAULT = 0;
+    public static final int PRIORITY_HIGH = 1;
+    public static final int PRIORITY_MAX = 2;
+    public static final int GROUP_ALERT_SUMMARY = 1;
+    public static final int GROUP_ALERT_CHILDREN = 2;
+
+    public abstract static class Style {
+    }
+
+    public static class BigTextStyle extends Style {
+        public BigTextStyle bigText(CharSequence text) {
+            return this;
+        }
+    }
+
+    public static class BigPictureStyle extends Style {
+        public BigPictureStyle bigPicture(Bitmap picture) {
+            return this;
+        }
+
+        public BigPictureStyle bigLargeIcon(Bitmap icon) {
+            return this;
+        }
+    }
+
+    public static class InboxStyle extends Style {
+        public InboxStyle addLine(CharSequence line) {
+            return this;
+        }
+
+        public InboxStyle setBigContentTitle(CharSequence title) {
+            return this;
+        }
+
+        public InboxStyle setSummaryText(CharSequence text) {
+            return this;
+        }
+    }
+
+    public static class Builder {
+        public Builder(Context context, String channelId) {
+        }
+
+        public Builder setSmallIcon(int icon) {
+            return this;
+        }
+
+        public Builder setLargeIcon(Bitmap icon) {
+            return this;
+        }
+
+        public Builder setContentTitle(CharSequence title) {
+            return this;
+        }
+
+        public Builder setContentText(CharSequence text) {
+            return this;
+        }
+
+        public Builder setContentIntent(PendingIntent intent) {
+            return this;
+        }
+
+        public Builder setStyle(Style style) {
+            return this;
+        }
+
+        public Builder setPriority(int priority) {
+            return this;
+        }
+
+        public Builder setAutoCancel(boolean autoCancel) {
+            return this;
+        }
+
+        public Builder setGroup(String groupKey) {
+            return this;
+        }
+
+        public Builder setGroupSummary(boolean isGroupSummary) {
+            return this;
+        }
+
+        public Builder setGroupAlertBehavior(int behavior) {
+            return this;
+        }
+
+        public Builder setOnlyAlertOnce(boolean onlyAlertOnce) {
+            return this;
+        }
+
+        public Builder setNumber(int number) {
+            return this;
+        }
+
+        public Builder setWhen(long when) {
+            return this;
+        }
+
+        public Builder setTimeoutAfter(long durationMs) {
+            return this;
+        }
+
+        public Notification build() {
+            return new Notification();
+        }
+    }
+}
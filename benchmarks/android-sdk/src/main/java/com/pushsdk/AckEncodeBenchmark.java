@@ -0,0 +1,70 @@
+package com.pushsdk;
+
+import android.os.Handler;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пакет ACK: 50 подтверждений копятся в EventBatcher (с сохранением
+ * в SharedPreferences) и уходят одним фреймом ack_batch
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AckEncodeBenchmark {
+    // Порог немедленной отправки EventBatcher
+    private static final int BATCH_SIZE = 50;
+
+    @Param({"json", "msgpack"})
+    public String encoding;
+
+    private EventBatcher batcher;
+    private String[] ids;
+    private Blackhole blackhole;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        boolean binary = MsgPackCodec.ENCODING.equals(encoding);
+        batcher = new EventBatcher(new MemoryContext(), new Handler(), frame -> send(frame, binary), new PushMetrics());
+        ids = new String[BATCH_SIZE];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = UUID.randomUUID().toString();
+        }
+    }
+
+    @Benchmark
+    public int ackBatch() {
+        for (String id : ids) {
+            batcher.addAck(id);
+        }
+        return batcher.size();
+    }
+
+    private boolean send(JSONObject frame, boolean binary) {
+        if (binary) {
+            blackhole.consume(MsgPackCodec.encode(frame));
+        } else {
+            blackhole.consume(frame.toString());
+        }
+        return true;
+    }
+}
@@ -0,0 +1,59 @@
+package com.pushsdk;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Декодирование фрейма уведомления: потоковый JSON, MessagePack
+ * и разбор в JSONObject, как до потокового декодера
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameDecodeBenchmark {
+    private String json;
+    private byte[] msgpack;
+
+    @Setup
+    public void setUp() throws Exception {
+        json = Frames.NOTIFICATION;
+        msgpack = MsgPackCodec.encode(new JSONObject(json));
+    }
+
+    @Benchmark
+    public FrameDecoder.Frame decodeJson() throws Exception {
+        return FrameDecoder.decode(json);
+    }
+
+    @Benchmark
+    public FrameDecoder.Frame decodeMsgPack() throws Exception {
+        return MsgPackCodec.decodeFrame(msgpack);
+    }
+
+    /**
+     * Фрейм вместе с data - так уведомление доходит до PushListener
+     */
+    @Benchmark
+    public JSONObject decodeJsonWithData() throws Exception {
+        return FrameDecoder.decode(json).notification.getData();
+    }
+
+    @Benchmark
+    public JSONObject jsonObject() throws Exception {
+        return new JSONObject(json);
+    }
+}
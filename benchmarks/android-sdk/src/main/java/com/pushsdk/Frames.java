@@ -0,0 +1,39 @@
+package com.pushsdk;
+
+/**
+ * Типичные фреймы сервера для бенчмарков
+ */
+final class Frames {
+    static final String NOTIFICATION = "{"
+        + "\"type\":\"notification\","
+        + "\"id\":\"5b1f2c9e-8a4d-4c3e-9f7a-2d6b1e0c4a91\","
+        + "\"title\":\"Заказ A-1042 передан курьеру\","
+        + "\"body\":\"Курьер будет у вас с 14:00 до 16:00. Трек-номер в приложении.\","
+        + "\"icon\":null,"
+        + "\"image\":\"https://cdn.example.com/push/orders/courier.png\","
+        + "\"url\":\"app://orders/A-1042\","
+        + "\"data\":{\"orderId\":\"A-1042\",\"items\":[101,205,318],\"promo\":{\"code\":\"AUTUMN\",\"discount\":10}},"
+        + "\"priority\":\"high\","
+        + "\"channelId\":\"orders\","
+        + "\"timestamp\":\"2026-10-16T23:19:28.971Z\","
+        + "\"expiresAt\":1792279168971,"
+        + "\"seq\":42"
+        + "}";
+
+    // Следующие фреймы рассылки: ссылка на шаблон и переменные устройства
+    static final String TEMPLATE_ID = "9c1d2e3f4a5b6c7d";
+    static final long TEMPLATE_VERSION = 305419896L;
+    static final String TEMPLATE = "{"
+        + "\"title\":\"{{name}}, скидка {{discount}}% до конца недели\","
+        + "\"body\":\"Для вас подобрали {{count}} товаров в категории {{category}}\","
+        + "\"image\":\"https://cdn.example.com/push/promo/{{category}}.png\","
+        + "\"url\":\"app://catalog/{{category}}?promo=AUTUMN\","
+        + "\"data\":{\"campaign\":\"autumn-sale\"},"
+        + "\"channelId\":\"promo\","
+        + "\"group\":\"autumn-sale\""
+        + "}";
+    static final String VARS = "{\"name\":\"Анна\",\"discount\":15,\"count\":24,\"category\":\"shoes\"}";
+
+    private Frames() {
+    }
+}
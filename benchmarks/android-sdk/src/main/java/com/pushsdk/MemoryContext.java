@@ -0,0 +1,180 @@
+package com.pushsdk;
+
+import android.app.NotificationManager;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.content.pm.ServiceInfo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Context с SharedPreferences в памяти: запись проходит тот же путь
+ * в SDK, но без диска. Файлы SDK (inbox, индекс уведомлений) - во
+ * временном каталоге, PushService в отдельном процессе не объявлена
+ */
+final class MemoryContext extends Context {
+    private final Map<String, Preferences> preferences = new HashMap<>();
+    private final NotificationManager notificationManager = new NotificationManager();
+    private File dir;
+
+    @Override
+    public synchronized SharedPreferences getSharedPreferences(String name, int mode) {
+        return preferences.computeIfAbsent(name, key -> new Preferences());
+    }
+
+    @Override
+    public Object getSystemService(String name) {
+        return NOTIFICATION_SERVICE.equals(name) ? notificationManager : null;
+    }
+
+    @Override
+    public synchronized File getFilesDir() {
+        if (dir == null) {
+            try {
+                dir = Files.createTempDirectory("pushsdk-bench").toFile();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            dir.deleteOnExit();
+        }
+        return dir;
+    }
+
+    @Override
+    public File getCacheDir() {
+        return getFilesDir();
+    }
+
+    @Override
+    public PackageManager getPackageManager() {
+        return new PackageManager() {
+            @Override
+            public ServiceInfo getServiceInfo(ComponentName component, int flags) throws NameNotFoundException {
+                throw new NameNotFoundException();
+            }
+        };
+    }
+
+    private static final class Preferences implements SharedPreferences {
+        private final Map<String, Object> values = new HashMap<>();
+
+        @Override
+        public synchronized String getString(String key, String defValue) {
+            Object value = values.get(key);
+            return value != null ? (String) value : defValue;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public synchronized Set<String> getStringSet(String key, Set<String> defValues) {
+            Object value = values.get(key);
+            return value != null ? (Set<String>) value : defValues;
+        }
+
+        @Override
+        public synchronized int getInt(String key, int defValue) {
+            Object value = values.get(key);
+            return value != null ? (Integer) value : defValue;
+        }
+
+        @Override
+        public synchronized long getLong(String key, long defValue) {
+            Object value = values.get(key);
+            return value != null ? (Long) value : defValue;
+        }
+
+        @Override
+        public synchronized boolean getBoolean(String key, boolean defValue) {
+            Object value = values.get(key);
+            return value != null ? (Boolean) value : defValue;
+        }
+
+        @Override
+        public synchronized boolean contains(String key) {
+            return values.containsKey(key);
+        }
+
+        @Override
+        public Editor edit() {
+            return new MemoryEditor();
+        }
+
+        private final class MemoryEditor implements Editor {
+            private final Map<String, Object> changes = new HashMap<>();
+            private boolean clear = false;
+
+            @Override
+            public Editor putString(String key, String value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putStringSet(String key, Set<String> values) {
+                changes.put(key, values != null ? new HashSet<>(values) : null);
+                return this;
+            }
+
+            @Override
+            public Editor putInt(String key, int value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putLong(String key, long value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putBoolean(String key, boolean value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor remove(String key) {
+                changes.put(key, null);
+                return this;
+            }
+
+            @Override
+            public Editor clear() {
+                clear = true;
+                return this;
+            }
+
+            @Override
+            public boolean commit() {
+                synchronized (Preferences.this) {
+                    if (clear) {
+                        values.clear();
+                    }
+                    for (Map.Entry<String, Object> change : changes.entrySet()) {
+                        if (change.getValue() == null) {
+                            values.remove(change.getKey());
+                        } else {
+                            values.put(change.getKey(), change.getValue());
+                        }
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public void apply() {
+                commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.pushsdk;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сборка уведомления в PushSDK: id из индекса, канал, интент клика
+ * и NotificationCompat.Builder - одиночное уведомление и сводка группы.
+ * Картинки нет: она загружается в потоке media после показа текста
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NotificationBuildBenchmark {
+    private static final String GROUP = "orders";
+
+    private PushSDK sdk;
+    private PushSDK.PushNotification notification;
+    private List<PushSDK.PushNotification> recent;
+
+    @Setup
+    public void setUp() throws Exception {
+        sdk = PushSDK.getInstance(new MemoryContext());
+        CountDownLatch ready = new CountDownLatch(1);
+        sdk.whenReady(ready::countDown);
+        ready.await();
+
+        notification = decode();
+        recent = new ArrayList<>();
+        for (int i = 0; i < NotificationRenderer.SUMMARY_LINES; i++) {
+            PushSDK.PushNotification item = decode();
+            item.id = item.id + "-" + i;
+            recent.add(item);
+        }
+    }
+
+    @Benchmark
+    public PushSDK.PushNotification showNotification() {
+        sdk.showNotification(notification, GROUP);
+        return notification;
+    }
+
+    @Benchmark
+    public List<PushSDK.PushNotification> showGroupSummary() {
+        sdk.showGroupSummary(GROUP, recent, 12);
+        return recent;
+    }
+
+    private static PushSDK.PushNotification decode() throws Exception {
+        PushSDK.PushNotification notification = FrameDecoder.decode(Frames.NOTIFICATION).notification;
+        notification.image = null;
+        notification.priority = IntakeQueue.normalize(notification.priority);
+        return notification;
+    }
+}
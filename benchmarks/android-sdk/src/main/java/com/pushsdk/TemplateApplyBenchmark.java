@@ -0,0 +1,61 @@
+package com.pushsdk;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сборка уведомления из шаблона кампании: первый фрейм приносит шаблон,
+ * следующие - только ссылку на него и переменные
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateApplyBenchmark {
+    private TemplateCache cache;
+
+    @Setup
+    public void setUp() {
+        cache = new TemplateCache();
+        cache.put(TemplateCache.parse(Frames.TEMPLATE_ID, Frames.TEMPLATE_VERSION, new JSONObject(Frames.TEMPLATE)));
+    }
+
+    @Benchmark
+    public PushSDK.PushNotification cachedTemplate() throws Exception {
+        PushSDK.PushNotification notification = notification();
+        if (!cache.apply(notification)) {
+            throw new IllegalStateException("Шаблона нет в кэше");
+        }
+        return notification;
+    }
+
+    @Benchmark
+    public PushSDK.PushNotification firstFrame() throws Exception {
+        PushSDK.PushNotification notification = notification();
+        notification.templateJson = Frames.TEMPLATE;
+        cache.apply(notification);
+        return notification;
+    }
+
+    private static PushSDK.PushNotification notification() {
+        PushSDK.PushNotification notification = new PushSDK.PushNotification();
+        notification.id = "5b1f2c9e-8a4d-4c3e-9f7a-2d6b1e0c4a91";
+        notification.templateId = Frames.TEMPLATE_ID;
+        notification.templateVersion = Frames.TEMPLATE_VERSION;
+        notification.varsJson = Frames.VARS;
+        return notification;
+    }
+}
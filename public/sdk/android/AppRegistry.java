@@ -0,0 +1,111 @@
+package com.pushsdk;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Дополнительные приложения в общем соединении
+ * White-label сборки и встроенные модули одного процесса регистрируются
+ * отдельными устройствами своих приложений, но получают уведомления
+ * через WebSocket основного приложения: сервер помечает их фреймы
+ * полем device. У каждого приложения свой слушатель и канал.
+ */
+class AppRegistry {
+    private static final String PREFS_NAME = "PushSDKApps";
+
+    static final class App {
+        final String apiKey;
+        final String channelId;
+        final PushSDK.PushListener listener;
+        final String token;
+        // Выдаётся сервером при регистрации, до неё - null
+        String deviceId;
+
+        App(String apiKey, String channelId, PushSDK.PushListener listener, String token) {
+            this.apiKey = apiKey;
+            this.channelId = channelId;
+            this.listener = listener;
+            this.token = token;
+        }
+    }
+
+    private final SharedPreferences prefs;
+    private final Map<String, App> apps = new LinkedHashMap<>();
+
+    /**
+     * @param context null - без хранения (процесс интерфейса при PushService в :push)
+     */
+    AppRegistry(Context context) {
+        this.prefs = context != null ? context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE) : null;
+    }
+
+    /**
+     * Добавление приложения; token и deviceId сохраняются между запусками
+     */
+    synchronized App add(String apiKey, String channelId, PushSDK.PushListener listener) {
+        String token = prefs != null ? prefs.getString(apiKey + "_token", null) : null;
+        if (token == null && prefs != null) {
+            token = UUID.randomUUID().toString();
+            prefs.edit().putString(apiKey + "_token", token).apply();
+        }
+        App app = new App(apiKey, channelId, listener, token);
+        app.deviceId = prefs != null ? prefs.getString(apiKey + "_device", null) : null;
+        apps.put(apiKey, app);
+        return app;
+    }
+
+    synchronized void setDeviceId(String apiKey, String deviceId) {
+        App app = apps.get(apiKey);
+        if (app != null) {
+            app.deviceId = deviceId;
+        }
+        if (prefs != null) {
+            prefs.edit().putString(apiKey + "_device", deviceId).apply();
+        }
+    }
+
+    synchronized App get(String apiKey) {
+        return apiKey != null ? apps.get(apiKey) : null;
+    }
+
+    synchronized App byDevice(String deviceId) {
+        if (deviceId == null) {
+            return null;
+        }
+        for (App app : apps.values()) {
+            if (deviceId.equals(app.deviceId)) {
+                return app;
+            }
+        }
+        return null;
+    }
+
+    synchronized List<App> all() {
+        return new ArrayList<>(apps.values());
+    }
+
+    /**
+     * Зарегистрированные приложения для фрейма register: [{deviceId, token}]
+     */
+    synchronized JSONArray toFrame() throws JSONException {
+        JSONArray list = new JSONArray();
+        for (App app : apps.values()) {
+            if (app.deviceId != null) {
+                list.put(new JSONObject()
+                    .put("deviceId", app.deviceId)
+                    .put("token", app.token));
+            }
+        }
+        return list;
+    }
+}
@@ -0,0 +1,141 @@
+package com.pushsdk;
+
+import android.app.Activity;
+import android.app.ActivityManager;
+import android.app.Application;
+import android.content.Context;
+import android.os.Bundle;
+
+/**
+ * Видимость приложения по числу запущенных Activity
+ * Регистрируется синхронно и без IPC, чтобы не замедлять запуск;
+ * видимость на момент создания проверяется позже, в фоне (checkInitial).
+ * Без Application-контекста (например, в тестах) приложение
+ * считается видимым всегда.
+ */
+class AppVisibility implements Application.ActivityLifecycleCallbacks {
+    interface Listener {
+        void onForeground();
+        void onBackground();
+    }
+
+    private final Listener listener;
+    private int started;
+    // Число переходов между фоном и экраном, чтобы не применить устаревшую проверку
+    private int transitions;
+    private volatile boolean foreground;
+
+    private AppVisibility(Listener listener, boolean foreground) {
+        this.listener = listener;
+        this.foreground = foreground;
+    }
+
+    static AppVisibility register(Context context, Listener listener) {
+        if (!(context instanceof Application)) {
+            return new AppVisibility(listener, true);
+        }
+        AppVisibility visibility = new AppVisibility(listener, false);
+        ((Application) context).registerActivityLifecycleCallbacks(visibility);
+        return visibility;
+    }
+
+    boolean isForeground() {
+        return foreground;
+    }
+
+    /**
+     * Видимость процесса на момент создания SDK
+     * SDK могли создать из уже открытой Activity - тогда её onActivityStarted
+     * пропущен, а onActivityResumed придёт только при следующем показе.
+     * Вызов IPC, поэтому только вне главного потока.
+     */
+    void checkInitial() {
+        int seen;
+        synchronized (this) {
+            if (foreground) {
+                return;
+            }
+            seen = transitions;
+        }
+        ActivityManager.RunningAppProcessInfo state = new ActivityManager.RunningAppProcessInfo();
+        ActivityManager.getMyMemoryState(state);
+        if (state.importance > ActivityManager.RunningAppProcessInfo.IMPORTANCE_VISIBLE) {
+            return;
+        }
+        synchronized (this) {
+            // За время проверки Activity запустилась или остановилась - колбэки точнее
+            if (transitions != seen || started > 0) {
+                return;
+            }
+            started = 1;
+            foreground = true;
+        }
+    }
+
+    /**
+     * Видимость процесса интерфейса, когда SDK работает в процессе :push
+     */
+    void onRemoteVisibility(boolean visible) {
+        if (visible == foreground) {
+            return;
+        }
+        foreground = visible;
+        if (visible) {
+            listener.onForeground();
+        } else {
+            listener.onBackground();
+        }
+    }
+
+    @Override
+    public void onActivityStarted(Activity activity) {
+        synchronized (this) {
+            if (started++ > 0) {
+                return;
+            }
+            transitions++;
+            foreground = true;
+        }
+        listener.onForeground();
+    }
+
+    @Override
+    public void onActivityStopped(Activity activity) {
+        synchronized (this) {
+            if (started == 0 || --started > 0) {
+                return;
+            }
+            transitions++;
+            foreground = false;
+        }
+        listener.onBackground();
+    }
+
+    @Override
+    public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+    }
+
+    @Override
+    public void onActivityResumed(Activity activity) {
+        // SDK создан из уже запущенной Activity - её onActivityStarted пропущен
+        boolean missed;
+        synchronized (this) {
+            missed = started == 0;
+        }
+        if (missed) {
+            onActivityStarted(activity);
+        }
+    }
+
+    @Override
+    public void onActivityPaused(Activity activity) {
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+    }
+
+    @Override
+    public void onActivityDestroyed(Activity activity) {
+    }
+}
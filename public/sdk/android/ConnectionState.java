@@ -0,0 +1,153 @@
+package com.pushsdk;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Состояние WebSocket-соединения
+ * Фаза и номер поколения лежат в одном AtomicLong и меняются через CAS,
+ * поэтому connect(), таймер переподключения, колбэки OkHttp и главный
+ * поток не могут открыть второй сокет. Каждая попытка подключения
+ * получает новое поколение: колбэки сокетов прошлых поколений
+ * не совпадают с текущим и игнорируются.
+ */
+class ConnectionState {
+    // Нет соединения и переподключение не запланировано
+    static final int IDLE = 0;
+    static final int CONNECTING = 1;
+    static final int OPEN = 2;
+    // Соединение потеряно, ждём таймера переподключения
+    static final int BACKING_OFF = 3;
+    // disconnect(): переподключаться нельзя до следующего connect()
+    static final int CLOSED = 4;
+
+    private static final int PHASE_BITS = 3;
+    private static final long PHASE_MASK = (1 << PHASE_BITS) - 1;
+
+    private final AtomicLong state = new AtomicLong(pack(0, IDLE));
+
+    /**
+     * Начало новой попытки подключения
+     * @return поколение попытки или -1, если сокет уже открыт,
+     *         открывается или соединение отключено
+     */
+    long beginConnect() {
+        while (true) {
+            long current = state.get();
+            int phase = phase(current);
+            if (phase != IDLE && phase != BACKING_OFF) {
+                return -1;
+            }
+            long generation = generation(current) + 1;
+            if (state.compareAndSet(current, pack(generation, CONNECTING))) {
+                return generation;
+            }
+        }
+    }
+
+    /**
+     * Сокет поколения открылся
+     * @return false - сокет устарел, его нужно закрыть
+     */
+    boolean opened(long generation) {
+        return state.compareAndSet(pack(generation, CONNECTING), pack(generation, OPEN));
+    }
+
+    /**
+     * Сокет поколения закрылся или оборвался
+     * @return false - сокет устарел или закрыт намеренно, переподключаться не нужно
+     */
+    boolean lost(long generation) {
+        while (true) {
+            long current = state.get();
+            int phase = phase(current);
+            if (generation(current) != generation || (phase != CONNECTING && phase != OPEN)) {
+                return false;
+            }
+            if (state.compareAndSet(current, pack(generation, BACKING_OFF))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Колбэк относится к текущему сокету
+     */
+    boolean isCurrent(long generation) {
+        long current = state.get();
+        int phase = phase(current);
+        return generation(current) == generation && (phase == CONNECTING || phase == OPEN);
+    }
+
+    /**
+     * disconnect(): колбэки всех сокетов становятся устаревшими
+     * @return было ли соединение открыто
+     */
+    boolean close() {
+        return moveTo(CLOSED) == OPEN;
+    }
+
+    /**
+     * Остановка без переподключения (режим опроса)
+     * Отключённое соединение остаётся отключённым
+     * @return было ли соединение открыто
+     */
+    boolean idle() {
+        while (true) {
+            long current = state.get();
+            int phase = phase(current);
+            if (phase == CLOSED) {
+                return false;
+            }
+            if (state.compareAndSet(current, pack(generation(current) + 1, IDLE))) {
+                return phase == OPEN;
+            }
+        }
+    }
+
+    /**
+     * connect() после disconnect()
+     */
+    void reopen() {
+        long current = state.get();
+        if (phase(current) == CLOSED) {
+            state.compareAndSet(current, pack(generation(current), IDLE));
+        }
+    }
+
+    boolean isOpen() {
+        return phase(state.get()) == OPEN;
+    }
+
+    boolean isClosed() {
+        return phase(state.get()) == CLOSED;
+    }
+
+    /**
+     * Нет ни открытого сокета, ни попытки подключения
+     */
+    boolean isDown() {
+        int phase = phase(state.get());
+        return phase == IDLE || phase == BACKING_OFF;
+    }
+
+    private int moveTo(int phase) {
+        while (true) {
+            long current = state.get();
+            if (state.compareAndSet(current, pack(generation(current) + 1, phase))) {
+                return phase(current);
+            }
+        }
+    }
+
+    private static long pack(long generation, int phase) {
+        return (generation << PHASE_BITS) | phase;
+    }
+
+    private static long generation(long packed) {
+        return packed >>> PHASE_BITS;
+    }
+
+    private static int phase(long packed) {
+        return (int) (packed & PHASE_MASK);
+    }
+}
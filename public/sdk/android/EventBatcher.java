@@ -0,0 +1,188 @@
+package com.pushsdk;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Буферизация событий ACK, просроченных сообщений и кликов
+ * Копит события и отправляет их одним фреймом ack_batch
+ * по достижении порога или по таймеру. Неотправленные события
+ * сохраняются на диск и переживают разрыв соединения.
+ */
+class EventBatcher {
+    private static final String TAG = "PushSDK";
+    private static final String PREFS_NAME = "PushSDKEvents";
+    private static final String KEY_ACKS = "pending_acks";
+    private static final String KEY_CLICKS = "pending_clicks";
+    private static final String KEY_EXPIRED = "pending_expired";
+
+    private static final int MAX_BATCH_SIZE = 50;
+    private static final long FLUSH_DELAY_MS = 500;
+    private static final int MAX_STORED_EVENTS = 500;
+
+    /**
+     * Отправитель фрейма. Возвращает false, если отправить не удалось
+     */
+    interface Sender {
+        boolean send(JSONObject frame);
+    }
+
+    private final SharedPreferences prefs;
+    private final Handler handler;
+    private final Sender sender;
+    private final PushMetrics metrics;
+
+    private final Set<String> acks = new LinkedHashSet<>();
+    private final Set<String> clicks = new LinkedHashSet<>();
+    // Получены после истечения срока и не показаны - сервер снимает их с очереди как ACK
+    private final Set<String> expired = new LinkedHashSet<>();
+    private boolean flushScheduled = false;
+
+    private final Runnable flushRunnable = this::flush;
+
+    EventBatcher(Context context, Handler handler, Sender sender, PushMetrics metrics) {
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.handler = handler;
+        this.sender = sender;
+        this.metrics = metrics;
+
+        // Восстанавливаем события, не отправленные в прошлый раз
+        restore(KEY_ACKS, acks);
+        restore(KEY_CLICKS, clicks);
+        restore(KEY_EXPIRED, expired);
+    }
+
+    void addAck(String notificationId) {
+        add(acks, notificationId);
+    }
+
+    void addClick(String notificationId) {
+        add(clicks, notificationId);
+    }
+
+    void addExpired(String notificationId) {
+        add(expired, notificationId);
+    }
+
+    /**
+     * Отправка всех накопленных событий одним фреймом
+     */
+    void flush() {
+        List<String> ackIds;
+        List<String> clickIds;
+        List<String> expiredIds;
+
+        synchronized (this) {
+            handler.removeCallbacks(flushRunnable);
+            flushScheduled = false;
+
+            if (size() == 0) {
+                return;
+            }
+            ackIds = new ArrayList<>(acks);
+            clickIds = new ArrayList<>(clicks);
+            expiredIds = new ArrayList<>(expired);
+        }
+
+        JSONObject batch = new JSONObject();
+        try {
+            batch.put("type", "ack_batch");
+            batch.put("ids", new JSONArray(ackIds));
+            if (!clickIds.isEmpty()) {
+                batch.put("clicks", new JSONArray(clickIds));
+            }
+            if (!expiredIds.isEmpty()) {
+                batch.put("expired", new JSONArray(expiredIds));
+            }
+            if (metrics.isEnabled()) {
+                // Сервер вернёт метку в ответе acked - для замера задержки
+                batch.put("sentAt", SystemClock.elapsedRealtime());
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "Ошибка формирования пакета ACK", e);
+            return;
+        }
+
+        if (!sender.send(batch)) {
+            // Нет соединения - события остаются на диске до следующего подключения
+            return;
+        }
+
+        synchronized (this) {
+            acks.removeAll(ackIds);
+            clicks.removeAll(clickIds);
+            expired.removeAll(expiredIds);
+            persist();
+        }
+    }
+
+    synchronized int size() {
+        return acks.size() + clicks.size() + expired.size();
+    }
+
+    private void add(Set<String> target, String notificationId) {
+        if (notificationId == null) {
+            return;
+        }
+
+        boolean flushNow;
+        synchronized (this) {
+            target.add(notificationId);
+            trim(target);
+            persist();
+
+            flushNow = size() >= MAX_BATCH_SIZE;
+            if (!flushNow && !flushScheduled) {
+                flushScheduled = true;
+                handler.postDelayed(flushRunnable, FLUSH_DELAY_MS);
+            }
+        }
+
+        if (flushNow) {
+            flush();
+        }
+    }
+
+    private void trim(Set<String> target) {
+        // Ограничиваем хранилище, удаляя самые старые события
+        while (target.size() > MAX_STORED_EVENTS) {
+            String oldest = target.iterator().next();
+            target.remove(oldest);
+        }
+    }
+
+    private void persist() {
+        prefs.edit()
+            .putString(KEY_ACKS, new JSONArray(acks).toString())
+            .putString(KEY_CLICKS, new JSONArray(clicks).toString())
+            .putString(KEY_EXPIRED, new JSONArray(expired).toString())
+            .apply();
+    }
+
+    private void restore(String key, Set<String> target) {
+        String stored = prefs.getString(key, null);
+        if (stored == null) {
+            return;
+        }
+        try {
+            JSONArray array = new JSONArray(stored);
+            for (int i = 0; i < array.length(); i++) {
+                target.add(array.getString(i));
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "Ошибка чтения сохранённых событий", e);
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.pushsdk;
+
+import org.json.JSONException;
+
+/**
+ * Потоковый декодер фреймов WebSocket
+ * Читает фрейм за один проход прямо в PushNotification, пропускает
+ * неизвестные поля без создания объектов, а объект data сохраняет
+ * как исходную подстроку - он разбирается только по запросу слушателя.
+ */
+final class FrameDecoder {
+
+    /**
+     * Результат декодирования фрейма
+     */
+    static final class Frame {
+        String type;
+        // Заполняется только для type = notification
+        PushSDK.PushNotification notification;
+    }
+
+    private final String text;
+    private int pos;
+
+    private FrameDecoder(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Декодирование фрейма. Для служебных фреймов заполняется только type
+     */
+    static Frame decode(String text) throws JSONException {
+        return new FrameDecoder(text).readFrame();
+    }
+
+    private Frame readFrame() throws JSONException {
+        Frame frame = new Frame();
+        PushSDK.PushNotification notification = new PushSDK.PushNotification();
+
+        skipWhitespace();
+        expect('{');
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+            return frame;
+        }
+
+        while (true) {
+            skipWhitespace();
+            expect('"');
+            int keyStart = pos;
+            int keyEnd = skipStringBody();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+
+            int keyLength = keyEnd - keyStart;
+            if (key(keyStart, keyLength, "type")) {
+                frame.type = readNullableString();
+            } else if (key(keyStart, keyLength, "id")) {
+                notification.id = readNullableString();
+            } else if (key(keyStart, keyLength, "title")) {
+                notification.title = readNullableString();
+            } else if (key(keyStart, keyLength, "body")) {
+                notification.body = readNullableString();
+            } else if (key(keyStart, keyLength, "icon")) {
+                notification.icon = readNullableString();
+            } else if (key(keyStart, keyLength, "image")) {
+                notification.image = readNullableString();
+            } else if (key(keyStart, keyLength, "url")) {
+                notification.url = readNullableString();
+            } else if (key(keyStart, keyLength, "channelId")) {
+                notification.channelId = readNullableString();
+            } else if (key(keyStart, keyLength, "group")) {
+                notification.group = readNullableString();
+            } else if (key(keyStart, keyLength, "timestamp")) {
+                notification.timestamp = parseTimestamp(readNullableString());
+            } else if (key(keyStart, keyLength, "priority")) {
+                notification.priority = readNullableString();
+            } else if (key(keyStart, keyLength, "expiresAt")) {
+                notification.expiresAt = readLong("expiresAt");
+            } else if (key(keyStart, keyLength, "ttl")) {
+                notification.ttl = readLong("ttl");
+            } else if (key(keyStart, keyLength, "seq")) {
+                notification.seq = readLong("seq");
+            } else if (key(keyStart, keyLength, "data")) {
+                notification.dataJson = readObjectText();
+            } else if (key(keyStart, keyLength, "device")) {
+                notification.device = readNullableString();
+            } else if (key(keyStart, keyLength, "templateId")) {
+                notification.templateId = readNullableString();
+            } else if (key(keyStart, keyLength, "templateVersion")) {
+                notification.templateVersion = readLong("templateVersion");
+            } else if (key(keyStart, keyLength, "template")) {
+                notification.templateJson = readObjectText();
+            } else if (key(keyStart, keyLength, "vars")) {
+                notification.varsJson = readObjectText();
+            } else {
+                // Неизвестное поле пропускаем без создания объектов
+                skipValue();
+            }
+
+            skipWhitespace();
+            char c = next();
+            if (c == '}') {
+                break;
+            }
+            if (c != ',') {
+                throw error("Ожидалась ',' или '}'");
+            }
+        }
+
+        if ("notification".equals(frame.type)) {
+            frame.notification = notification;
+        }
+        return frame;
+    }
+
+    private long readLong(String field) throws JSONException {
+        String value = readNullableString();
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            // Большие числа JS может записать как 1.7e12
+            try {
+                return (long) Double.parseDouble(value);
+            } catch (NumberFormatException ignored) {
+                throw error("Некорректный " + field);
+            }
+        }
+    }
+
+    /**
+     * Разбор времени сервера в формате toISOString(): 2026-01-01T00:00:00.000Z
+     * Без java.time, которого нет до API 26
+     * @return мс от эпохи или 0, если формат другой
+     */
+    static long parseTimestamp(String value) {
+        if (value == null || value.length() < 20 || value.charAt(value.length() - 1) != 'Z'
+                || value.charAt(4) != '-' || value.charAt(10) != 'T') {
+            return 0;
+        }
+        try {
+            int year = Integer.parseInt(value.substring(0, 4));
+            int month = Integer.parseInt(value.substring(5, 7));
+            int day = Integer.parseInt(value.substring(8, 10));
+            int hour = Integer.parseInt(value.substring(11, 13));
+            int minute = Integer.parseInt(value.substring(14, 16));
+            int second = Integer.parseInt(value.substring(17, 19));
+            int millis = value.charAt(19) == '.' && value.length() >= 24
+                ? Integer.parseInt(value.substring(20, 23)) : 0;
+
+            // Число дней от 1970-01-01 по григорианскому календарю
+            int y = month <= 2 ? year - 1 : year;
+            int era = y / 400;
+            int yearOfEra = y - era * 400;
+            int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+            int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+            long days = era * 146097L + dayOfEra - 719468;
+
+            return ((days * 24 + hour) * 60 + minute) * 60000L + second * 1000L + millis;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // Сканер
+
+    /**
+     * Объект как исходная подстрока фрейма, другие значения - null
+     */
+    private String readObjectText() throws JSONException {
+        int valueStart = pos;
+        skipValue();
+        return text.charAt(valueStart) == '{' ? text.substring(valueStart, pos) : null;
+    }
+
+    private boolean key(int start, int length, String name) {
+        return length == name.length() && text.regionMatches(start, name, 0, length);
+    }
+
+    /**
+     * Строка, null или скалярное значение (число, boolean) как строка
+     */
+    private String readNullableString() throws JSONException {
+        char c = peek();
+        if (c == '"') {
+            pos++;
+            return readStringBody();
+        }
+        if (c == '{' || c == '[') {
+            skipValue();
+            return null;
+        }
+        int start = pos;
+        skipLiteral();
+        if (pos - start == 4 && text.startsWith("null", start)) {
+            return null;
+        }
+        return text.substring(start, pos);
+    }
+
+    /**
+     * Чтение строки после открывающей кавычки. Без escape-последовательностей
+     * возвращается подстрока исходного фрейма без промежуточного буфера
+     */
+    private String readStringBody() throws JSONException {
+        int start = pos;
+        int length = text.length();
+        while (pos < length) {
+            char c = text.charAt(pos);
+            if (c == '"') {
+                String value = text.substring(start, pos);
+                pos++;
+                return value;
+            }
+            if (c == '\\') {
+                break;
+            }
+            pos++;
+        }
+
+        StringBuilder builder = new StringBuilder(pos - start + 16);
+        builder.append(text, start, pos);
+        while (pos < length) {
+            char c = text.charAt(pos++);
+            if (c == '"') {
+                return builder.toString();
+            }
+            if (c != '\\') {
+                builder.append(c);
+                continue;
+            }
+            if (pos >= length) {
+                break;
+            }
+            char escaped = text.charAt(pos++);
+            switch (escaped) {
+                case 'n': builder.append('\n'); break;
+                case 't': builder.append('\t'); break;
+                case 'r': builder.append('\r'); break;
+                case 'b': builder.append('\b'); break;
+                case 'f': builder.append('\f'); break;
+                case 'u':
+                    if (pos + 4 > length) {
+                        throw error("Неполная escape-последовательность");
+                    }
+                    try {
+                        builder.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Неверная escape-последовательность");
+                    }
+                    pos += 4;
+                    break;
+                default:
+                    builder.append(escaped);
+            }
+        }
+        throw error("Незакрытая строка");
+    }
+
+    /**
+     * Пропуск тела строки после открывающей кавычки
+     * @return позиция закрывающей кавычки
+     */
+    private int skipStringBody() throws JSONException {
+        int length = text.length();
+        while (pos < length) {
+            char c = text.charAt(pos++);
+            if (c == '"') {
+                return pos - 1;
+            }
+            if (c == '\\') {
+                pos++;
+            }
+        }
+        throw error("Незакрытая строка");
+    }
+
+    private void skipValue() throws JSONException {
+        char c = peek();
+        if (c == '"') {
+            pos++;
+            skipStringBody();
+            return;
+        }
+        if (c != '{' && c != '[') {
+            skipLiteral();
+            return;
+        }
+
+        int depth = 0;
+        int length = text.length();
+        while (pos < length) {
+            char ch = text.charAt(pos++);
+            if (ch == '"') {
+                skipStringBody();
+            } else if (ch == '{' || ch == '[') {
+                depth++;
+            } else if (ch == '}' || ch == ']') {
+                depth--;
+                if (depth == 0) {
+                    return;
+                }
+            }
+        }
+        throw error("Незакрытый объект");
+    }
+
+    private void skipLiteral() {
+        int length = text.length();
+        while (pos < length) {
+            char c = text.charAt(pos);
+            if (c == ',' || c == '}' || c == ']' || c <= ' ') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private void skipWhitespace() {
+        int length = text.length();
+        while (pos < length && text.charAt(pos) <= ' ') {
+            pos++;
+        }
+    }
+
+    private char peek() throws JSONException {
+        if (pos >= text.length()) {
+            throw error("Неожиданный конец фрейма");
+        }
+        return text.charAt(pos);
+    }
+
+    private char next() throws JSONException {
+        char c = peek();
+        pos++;
+        return c;
+    }
+
+    private void expect(char expected) throws JSONException {
+        if (next() != expected) {
+            throw error("Ожидался '" + expected + "'");
+        }
+    }
+
+    private JSONException error(String message) {
+        return new JSONException(message + " в позиции " + pos);
+    }
+}
@@ -0,0 +1,67 @@
+package com.pushsdk;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Распаковка маленьких фреймов, сжатых предустановленным словарём
+ * Формат: 0x00, версия словаря, raw deflate. Словарь должен побайтно
+ * совпадать с src/providers/frame-dictionary.js на сервере.
+ */
+final class FrameDictionary {
+    static final int VERSION = 1;
+
+    private static final int FRAME_MARKER = 0x00;
+
+    private static final byte[] DICTIONARY = (
+        "{\"type\":\"prefetch\",\"urls\":[\"https://\"]}"
+        + "{\"type\":\"registered\",\"deviceId\":\"\",\"encoding\":\"json\",\"dictionary\":1,\"timestamp\":\"2026-01-01T00:00:00.000Z\"}"
+        + "{\"type\":\"notification\",\"id\":\"\",\"title\":\"\",\"body\":\"\",\"icon\":\"https://\",\"image\":\"https://\",\"url\":\"https://\","
+        + "\"data\":{},\"priority\":\"high\",\"channelId\":\"default\",\"timestamp\":\"2026-01-01T00:00:00.000Z\"}"
+    ).getBytes(StandardCharsets.UTF_8);
+
+    // Фреймы ограничены сервером, это защита от «zip-бомбы»
+    private static final int MAX_INFLATED_BYTES = 256 * 1024;
+
+    private FrameDictionary() {
+    }
+
+    static boolean isCompressed(byte[] frame) {
+        return frame.length > 2 && (frame[0] & 0xff) == FRAME_MARKER;
+    }
+
+    /**
+     * Распаковка фрейма
+     * @return исходные байты фрейма (JSON или MessagePack)
+     */
+    static byte[] inflate(byte[] frame) throws DataFormatException {
+        int version = frame[1] & 0xff;
+        if (version != VERSION) {
+            throw new DataFormatException("Неизвестная версия словаря: " + version);
+        }
+
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setDictionary(DICTIONARY);
+            inflater.setInput(frame, 2, frame.length - 2);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(frame.length * 3);
+            byte[] buffer = new byte[1024];
+            while (!inflater.finished()) {
+                int read = inflater.inflate(buffer);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                out.write(buffer, 0, read);
+                if (out.size() > MAX_INFLATED_BYTES) {
+                    throw new DataFormatException("Слишком большой фрейм");
+                }
+            }
+            return out.toByteArray();
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package com.pushsdk;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Адаптивный heartbeat соединения
+ * Подбирает самый длинный интервал, при котором NAT оператора ещё
+ * не закрывает соединение: после нескольких успешных пингов интервал
+ * увеличивается, при обрыве на пробном интервале он запоминается как
+ * потолок. Результат хранится отдельно для Wi-Fi, мобильной сети и
+ * Ethernet. В режиме энергосбережения и Doze пробы не делаются,
+ * а интервал не бывает короче POWER_SAVE_MIN_MS.
+ * Пинги планируются будильником ELAPSED_REALTIME_WAKEUP, чтобы
+ * keepalive уходил и в глубоком сне. Интервал меняется только по
+ * замерам, где реальная пауза совпала с запланированной: пауза,
+ * растянутая сном или Doze, ничего не говорит о пределе NAT.
+ * Работает только если сервер согласился, что пингует клиент.
+ */
+class Heartbeat {
+    private static final String TAG = "PushSDK";
+    private static final String PREFS_NAME = "PushSDKHeartbeat";
+
+    private static final long MIN_INTERVAL_MS = 30 * 1000;
+    private static final long MAX_INTERVAL_MS = 15 * 60 * 1000;
+    private static final long STEP_MS = 30 * 1000;
+    private static final long POWER_SAVE_MIN_MS = 5 * 60 * 1000;
+    private static final long PONG_TIMEOUT_MS = 15 * 1000;
+    // Допустимое расхождение реальной паузы с запланированной
+    private static final long GAP_TOLERANCE_MS = 10 * 1000;
+    // Столько успешных пингов подряд, чтобы интервал считался надёжным
+    private static final int SUCCESSES_TO_PROMOTE = 2;
+    // Столько обрывов на надёжном интервале, чтобы его уменьшить
+    private static final int FAILURES_TO_DEMOTE = 2;
+
+    /**
+     * Действия с соединением
+     */
+    interface Connection {
+        boolean sendPing();
+        // Пинг без ответа - соединение мёртвое, его нужно закрыть
+        void onDead();
+    }
+
+    private final Context context;
+    private final SharedPreferences prefs;
+    private final Handler handler;
+    private final Connection connection;
+    private final AlarmManager alarms;
+    private final PendingIntent pingIntent;
+    private final PowerManager.WakeLock wakeLock;
+
+    private boolean running = false;
+    private String networkKey;
+    private long maxIntervalMs = MAX_INTERVAL_MS;
+    private long stableMs;    // надёжный интервал для текущей сети
+    private long ceilingMs;   // интервал, на котором соединение обрывалось (0 - неизвестно)
+    private long currentMs;
+    private int successes = 0;
+    private int failures = 0;
+    private boolean awaitingPong = false;
+    // elapsedRealtime последнего обмена и пауза перед текущим пингом
+    private long lastTrafficAt;
+    private long idleMs;
+
+    private final Runnable pingRunnable = this::ping;
+    private final Runnable timeoutRunnable = this::onPongTimeout;
+
+    Heartbeat(Context context, Connection connection) {
+        this.context = context;
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.connection = connection;
+        HandlerThread thread = new HandlerThread("PushSDK-heartbeat");
+        thread.start();
+        this.handler = new Handler(thread.getLooper());
+        this.alarms = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        PowerManager power = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        this.wakeLock = power != null ? power.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "PushSDK:heartbeat") : null;
+        if (wakeLock != null) {
+            wakeLock.setReferenceCounted(false);
+        }
+
+        // Будильник доставляется в поток heartbeat, манифест не нужен
+        String action = context.getPackageName() + ".pushsdk.HEARTBEAT";
+        this.pingIntent = PendingIntent.getBroadcast(
+            context,
+            0,
+            new Intent(action).setPackage(context.getPackageName()),
+            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+        BroadcastReceiver receiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context c, Intent intent) {
+                ping();
+            }
+        };
+        IntentFilter filter = new IntentFilter(action);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            context.registerReceiver(receiver, filter, null, handler, Context.RECEIVER_NOT_EXPORTED);
+        } else {
+            context.registerReceiver(receiver, filter, null, handler);
+        }
+    }
+
+    /**
+     * Старт после регистрации
+     * @param serverIdleMs через сколько тишины сервер закрывает соединение
+     */
+    synchronized void start(long serverIdleMs) {
+        stopInternal();
+        running = true;
+        // Пинг должен успеть до таймаута сервера с запасом на доставку
+        maxIntervalMs = serverIdleMs > 0
+            ? Math.max(MIN_INTERVAL_MS, Math.min(MAX_INTERVAL_MS, serverIdleMs - PONG_TIMEOUT_MS * 2))
+            : MAX_INTERVAL_MS;
+
+        networkKey = currentNetworkKey();
+        stableMs = Math.min(maxIntervalMs, prefs.getLong(networkKey + "_stable", MIN_INTERVAL_MS));
+        ceilingMs = prefs.getLong(networkKey + "_ceiling", 0);
+        successes = 0;
+        lastTrafficAt = SystemClock.elapsedRealtime();
+
+        scheduleNext();
+    }
+
+    /**
+     * Остановка по disconnect или при закрытии соединения сервером
+     */
+    synchronized void stop() {
+        stopInternal();
+    }
+
+    /**
+     * Соединение оборвалось само (onFailure)
+     * Если это случилось на пробном интервале - это предел NAT этой сети
+     */
+    synchronized void onConnectionLost() {
+        if (!running) {
+            return;
+        }
+        long idle = awaitingPong ? idleMs : SystemClock.elapsedRealtime() - lastTrafficAt;
+        if (!isMeasured(idle)) {
+            // Обрыв не на запланированной паузе (сон, смена сети) - интервал не проверен
+            stopInternal();
+            return;
+        }
+        if (currentMs > stableMs) {
+            ceilingMs = currentMs;
+            Log.d(TAG, "Heartbeat: предел " + networkKey + " - " + ceilingMs / 1000 + "с");
+        } else if (++failures >= FAILURES_TO_DEMOTE && stableMs > MIN_INTERVAL_MS) {
+            // Надёжный интервал перестал работать (например, сменился NAT)
+            ceilingMs = stableMs;
+            stableMs = Math.max(MIN_INTERVAL_MS, stableMs - STEP_MS);
+            failures = 0;
+        }
+        persist();
+        stopInternal();
+    }
+
+    synchronized void onPong() {
+        if (!running || !awaitingPong) {
+            return;
+        }
+        awaitingPong = false;
+        handler.removeCallbacks(timeoutRunnable);
+        releaseWakeLock();
+        failures = 0;
+        lastTrafficAt = SystemClock.elapsedRealtime();
+
+        if (!isMeasured(idleMs)) {
+            // Пинг опоздал - пауза была длиннее проверяемой, засчитывать нечего
+            successes = 0;
+        } else if (currentMs > stableMs && ++successes >= SUCCESSES_TO_PROMOTE) {
+            stableMs = currentMs;
+            successes = 0;
+            persist();
+            Log.d(TAG, "Heartbeat: " + networkKey + " - " + stableMs / 1000 + "с");
+        }
+        scheduleNext();
+    }
+
+    private void scheduleNext() {
+        currentMs = nextInterval();
+        if (alarms == null) {
+            handler.removeCallbacks(pingRunnable);
+            handler.postDelayed(pingRunnable, currentMs);
+            return;
+        }
+
+        long triggerAt = SystemClock.elapsedRealtime() + currentMs;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S && !alarms.canScheduleExactAlarms()) {
+            // Без разрешения на точные будильники система может сдвинуть пинг - такой замер не засчитается
+            alarms.setAndAllowWhileIdle(AlarmManager.ELAPSED_REALTIME_WAKEUP, triggerAt, pingIntent);
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            alarms.setExactAndAllowWhileIdle(AlarmManager.ELAPSED_REALTIME_WAKEUP, triggerAt, pingIntent);
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            alarms.setExact(AlarmManager.ELAPSED_REALTIME_WAKEUP, triggerAt, pingIntent);
+        } else {
+            alarms.set(AlarmManager.ELAPSED_REALTIME_WAKEUP, triggerAt, pingIntent);
+        }
+    }
+
+    /**
+     * Реальная пауза совпала с запланированной
+     */
+    private boolean isMeasured(long idle) {
+        return Math.abs(idle - currentMs) <= GAP_TOLERANCE_MS;
+    }
+
+    private long nextInterval() {
+        if (isPowerSaving()) {
+            // Без проб: меньше пробуждений радио важнее быстрого обнаружения обрыва
+            return Math.min(maxIntervalMs, Math.max(stableMs, POWER_SAVE_MIN_MS));
+        }
+        long probe = stableMs + STEP_MS;
+        if (probe <= maxIntervalMs && (ceilingMs == 0 || probe < ceilingMs)) {
+            return probe;
+        }
+        return stableMs;
+    }
+
+    private synchronized void ping() {
+        if (!running || awaitingPong) {
+            return;
+        }
+        // Будильник будит процессор только на время onReceive - держим его до ответа
+        acquireWakeLock();
+        idleMs = SystemClock.elapsedRealtime() - lastTrafficAt;
+        if (!connection.sendPing()) {
+            releaseWakeLock();
+            return;
+        }
+        awaitingPong = true;
+        handler.postDelayed(timeoutRunnable, PONG_TIMEOUT_MS);
+    }
+
+    private void onPongTimeout() {
+        synchronized (this) {
+            if (!running || !awaitingPong) {
+                return;
+            }
+            Log.d(TAG, "Heartbeat: нет ответа за " + PONG_TIMEOUT_MS / 1000 + "с");
+        }
+        onConnectionLost();
+        connection.onDead();
+    }
+
+    private void stopInternal() {
+        running = false;
+        awaitingPong = false;
+        handler.removeCallbacks(pingRunnable);
+        handler.removeCallbacks(timeoutRunnable);
+        if (alarms != null) {
+            alarms.cancel(pingIntent);
+        }
+        releaseWakeLock();
+    }
+
+    private void acquireWakeLock() {
+        if (wakeLock == null) {
+            return;
+        }
+        try {
+            wakeLock.acquire(PONG_TIMEOUT_MS * 2);
+        } catch (SecurityException e) {
+            // Нет разрешения WAKE_LOCK - пинг уйдёт, пока процессор не уснул
+            Log.w(TAG, "Heartbeat без WAKE_LOCK");
+        }
+    }
+
+    private void releaseWakeLock() {
+        if (wakeLock != null && wakeLock.isHeld()) {
+            wakeLock.release();
+        }
+    }
+
+    private void persist() {
+        prefs.edit()
+            .putLong(networkKey + "_stable", stableMs)
+            .putLong(networkKey + "_ceiling", ceilingMs)
+            .apply();
+    }
+
+    private boolean isPowerSaving() {
+        PowerManager power = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        if (power == null) {
+            return false;
+        }
+        if (power.isPowerSaveMode()) {
+            return true;
+        }
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.M && power.isDeviceIdleMode();
+    }
+
+    /**
+     * Тип текущей сети. SSID без разрешения на геолокацию недоступен,
+     * поэтому все Wi-Fi сети делят одно значение
+     */
+    private String currentNetworkKey() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            return "default";
+        }
+        ConnectivityManager connectivity =
+            (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivity == null) {
+            return "default";
+        }
+        Network network = connectivity.getActiveNetwork();
+        NetworkCapabilities capabilities = network != null ? connectivity.getNetworkCapabilities(network) : null;
+        if (capabilities == null) {
+            return "default";
+        }
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) {
+            return "wifi";
+        }
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)) {
+            return "cellular";
+        }
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET)) {
+            return "ethernet";
+        }
+        return "default";
+    }
+}
@@ -0,0 +1,114 @@
+package com.pushsdk;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+
+/**
+ * HTTP клиенты SDK
+ * REST/медиа клиент с пулом соединений и HTTP/2, и отдельный
+ * WebSocket клиент без таймаута чтения. Оба используют общий
+ * диспетчер, поэтому потоки OkHttp не дублируются.
+ */
+final class HttpClients {
+    private static final int MAX_IDLE_CONNECTIONS = 4;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+
+    private static final long CONNECT_TIMEOUT_S = 10;
+    private static final long READ_TIMEOUT_S = 20;
+    private static final long WRITE_TIMEOUT_S = 20;
+    private static final long CALL_TIMEOUT_S = 60;
+
+    // С этого размера фреймы сжимает permessage-deflate (как threshold на сервере)
+    static final long WS_COMPRESS_MIN_BYTES = 1024;
+
+    // Тела меньше этого размера не сжимаем - заголовок gzip их только увеличит
+    private static final long GZIP_MIN_BYTES = 512;
+
+    private HttpClients() {
+    }
+
+    /**
+     * Клиент для REST-запросов и загрузки изображений
+     */
+    static OkHttpClient createRestClient() {
+        return new OkHttpClient.Builder()
+            .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+            .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+            .connectTimeout(CONNECT_TIMEOUT_S, TimeUnit.SECONDS)
+            .readTimeout(READ_TIMEOUT_S, TimeUnit.SECONDS)
+            .writeTimeout(WRITE_TIMEOUT_S, TimeUnit.SECONDS)
+            .callTimeout(CALL_TIMEOUT_S, TimeUnit.SECONDS)
+            .retryOnConnectionFailure(true)
+            .addInterceptor(new GzipRequestInterceptor())
+            .build();
+    }
+
+    /**
+     * Клиент для постоянного WebSocket соединения
+     */
+    static OkHttpClient createWebSocketClient(OkHttpClient restClient) {
+        return restClient.newBuilder()
+            .readTimeout(0, TimeUnit.MILLISECONDS) // Без таймаута для WebSocket
+            .callTimeout(0, TimeUnit.MILLISECONDS)
+            // Без pingInterval: heartbeat с адаптивным интервалом ведёт Heartbeat
+            .minWebSocketMessageToCompress(WS_COMPRESS_MIN_BYTES)
+            .build();
+    }
+
+    /**
+     * Сжатие тел запросов gzip (express.json распаковывает их сам)
+     */
+    static class GzipRequestInterceptor implements Interceptor {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Request original = chain.request();
+            RequestBody body = original.body();
+
+            if (body == null
+                    || original.header("Content-Encoding") != null
+                    || body.contentLength() < GZIP_MIN_BYTES) {
+                return chain.proceed(original);
+            }
+
+            Request compressed = original.newBuilder()
+                .header("Content-Encoding", "gzip")
+                .method(original.method(), gzip(body))
+                .build();
+            return chain.proceed(compressed);
+        }
+
+        private RequestBody gzip(RequestBody body) {
+            return new RequestBody() {
+                @Override
+                public MediaType contentType() {
+                    return body.contentType();
+                }
+
+                @Override
+                public long contentLength() {
+                    return -1; // Размер после сжатия заранее неизвестен
+                }
+
+                @Override
+                public void writeTo(BufferedSink sink) throws IOException {
+                    BufferedSink gzipSink = Okio.buffer(new GzipSink(sink));
+                    body.writeTo(gzipSink);
+                    gzipSink.close();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.pushsdk;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+import android.util.LruCache;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import okhttp3.CacheControl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Двухуровневый кэш изображений уведомлений
+ * Память: LRU с ограничением по размеру в байтах.
+ * Диск: файлы по SHA-1 от URL с учётом ETag и Cache-Control.
+ * Декодирование с предварительным чтением размеров и уменьшением
+ * до размера BigPictureStyle.
+ */
+class ImageCache {
+    private static final String TAG = "PushSDK";
+    private static final String DIR_NAME = "push_images";
+
+    // Размер картинки BigPictureStyle (около 2:1 на xxhdpi)
+    private static final int TARGET_WIDTH_PX = 1024;
+    private static final int TARGET_HEIGHT_PX = 512;
+
+    private static final int MAX_MEMORY_BYTES = 8 * 1024 * 1024;
+    private static final long MAX_DISK_BYTES = 20 * 1024 * 1024;
+    // Предзагрузка не занимает больше этой части кэша
+    private static final long PREFETCH_DISK_BUDGET = MAX_DISK_BYTES / 2;
+
+    // Срок жизни, если сервер не прислал Cache-Control
+    private static final long DEFAULT_TTL_MS = 24 * 60 * 60 * 1000L;
+
+    private final File dir;
+    private final OkHttpClient client;
+    private final LruCache<String, Bitmap> memory;
+
+    ImageCache(File cacheDir, OkHttpClient client) {
+        this.dir = new File(cacheDir, DIR_NAME);
+        this.client = client;
+
+        // Не больше 1/16 доступной памяти процесса
+        long heapLimit = Runtime.getRuntime().maxMemory() / 16;
+        int maxBytes = (int) Math.min(MAX_MEMORY_BYTES, heapLimit);
+        this.memory = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount();
+            }
+        };
+    }
+
+    /**
+     * Получение изображения: память, затем диск, затем сеть
+     * Блокирующий вызов, нельзя вызывать в главном потоке
+     */
+    Bitmap get(String url) {
+        Bitmap bitmap = memory.get(url);
+        if (bitmap != null) {
+            return bitmap;
+        }
+
+        File file = fetch(url);
+        if (file == null) {
+            return null;
+        }
+
+        bitmap = decodeSampled(file);
+        if (bitmap != null) {
+            memory.put(url, bitmap);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Предзагрузка изображения на диск до прихода уведомления
+     * @return false, если бюджет диска исчерпан или загрузка не удалась
+     */
+    boolean prefetch(String url) {
+        if (memory.get(url) != null) {
+            return true;
+        }
+        if (diskUsage() >= PREFETCH_DISK_BUDGET) {
+            Log.d(TAG, "Бюджет предзагрузки исчерпан, пропускаем " + url);
+            return false;
+        }
+        return fetch(url) != null;
+    }
+
+    /**
+     * Гарантирует наличие свежей копии на диске
+     * @return файл с изображением или null при ошибке
+     */
+    File fetch(String url) {
+        String key = hash(url);
+        File file = new File(dir, key);
+        File metaFile = new File(dir, key + ".meta");
+
+        JSONObject meta = readMeta(metaFile);
+        long expires = meta != null ? meta.optLong("expires", 0) : 0;
+        String etag = meta != null ? meta.optString("etag", null) : null;
+
+        if (file.exists() && expires > System.currentTimeMillis()) {
+            file.setLastModified(System.currentTimeMillis());
+            return file;
+        }
+
+        Request.Builder builder = new Request.Builder().url(url);
+        if (file.exists() && etag != null) {
+            builder.header("If-None-Match", etag);
+        }
+
+        try (Response response = client.newCall(builder.build()).execute()) {
+            if (response.code() == 304 && file.exists()) {
+                // Не изменилось - продлеваем срок жизни
+                writeMeta(metaFile, etag, expiresAt(response));
+                file.setLastModified(System.currentTimeMillis());
+                return file;
+            }
+
+            if (!response.isSuccessful()) {
+                Log.e(TAG, "Ошибка загрузки изображения: " + response.code());
+                return null;
+            }
+
+            if (!dir.exists() && !dir.mkdirs()) {
+                return null;
+            }
+
+            // Пишем во временный файл, чтобы не оставить битый кэш
+            // Имя уникально: один URL могут загружать несколько потоков
+            File tmp = File.createTempFile(key, ".tmp", dir);
+            try (InputStream input = response.body().byteStream();
+                 OutputStream output = new FileOutputStream(tmp)) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = input.read(buffer)) != -1) {
+                    output.write(buffer, 0, read);
+                }
+            }
+            if (!tmp.renameTo(file)) {
+                tmp.delete();
+                return null;
+            }
+
+            if (response.cacheControl().noStore()) {
+                // Кэшировать нельзя: файл нужен только для декодирования
+                // и будет перезаписан при следующем обращении
+                writeMeta(metaFile, null, 0);
+            } else {
+                writeMeta(metaFile, response.header("ETag"), expiresAt(response));
+            }
+
+            trimDisk();
+            return file;
+        } catch (IOException e) {
+            Log.e(TAG, "Ошибка загрузки изображения", e);
+            return null;
+        }
+    }
+
+    /**
+     * Декодирование с уменьшением: сначала читаем только размеры
+     */
+    private Bitmap decodeSampled(File file) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getPath(), options);
+
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        options.inSampleSize = sampleSize(options.outWidth, options.outHeight);
+        options.inJustDecodeBounds = false;
+        return BitmapFactory.decodeFile(file.getPath(), options);
+    }
+
+    private static int sampleSize(int width, int height) {
+        int sample = 1;
+        // Степень двойки, при которой картинка всё ещё не меньше целевой
+        while (width / (sample * 2) >= TARGET_WIDTH_PX && height / (sample * 2) >= TARGET_HEIGHT_PX) {
+            sample *= 2;
+        }
+        return sample;
+    }
+
+    private static long expiresAt(Response response) {
+        CacheControl cacheControl = response.cacheControl();
+        if (cacheControl.noCache()) {
+            return 0;
+        }
+        int maxAge = cacheControl.maxAgeSeconds();
+        long ttl = maxAge >= 0 ? maxAge * 1000L : DEFAULT_TTL_MS;
+        return System.currentTimeMillis() + ttl;
+    }
+
+    /**
+     * Удаление самых старых файлов при превышении лимита
+     */
+    private synchronized void trimDisk() {
+        File[] files = dir.listFiles((d, name) -> !name.endsWith(".meta") && !name.endsWith(".tmp"));
+        if (files == null) {
+            return;
+        }
+
+        long total = sum(files);
+        if (total <= MAX_DISK_BYTES) {
+            return;
+        }
+
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File f : files) {
+            if (total <= MAX_DISK_BYTES) {
+                break;
+            }
+            total -= f.length();
+            f.delete();
+            new File(dir, f.getName() + ".meta").delete();
+        }
+    }
+
+    private long diskUsage() {
+        File[] files = dir.listFiles();
+        return files != null ? sum(files) : 0;
+    }
+
+    private static long sum(File[] files) {
+        long total = 0;
+        for (File f : files) {
+            total += f.length();
+        }
+        return total;
+    }
+
+    private static JSONObject readMeta(File metaFile) {
+        if (!metaFile.exists()) {
+            return null;
+        }
+        try (InputStream input = new FileInputStream(metaFile)) {
+            byte[] bytes = new byte[(int) metaFile.length()];
+            int offset = 0;
+            int read;
+            while (offset < bytes.length && (read = input.read(bytes, offset, bytes.length - offset)) != -1) {
+                offset += read;
+            }
+            return new JSONObject(new String(bytes, 0, offset, StandardCharsets.UTF_8));
+        } catch (IOException | JSONException e) {
+            return null;
+        }
+    }
+
+    private static void writeMeta(File metaFile, String etag, long expires) {
+        try (OutputStream output = new FileOutputStream(metaFile)) {
+            JSONObject meta = new JSONObject();
+            if (etag != null) {
+                meta.put("etag", etag);
+            }
+            meta.put("expires", expires);
+            output.write(meta.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException | JSONException e) {
+            Log.e(TAG, "Ошибка записи метаданных кэша", e);
+        }
+    }
+
+    static String hash(String url) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] bytes = digest.digest(url.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(bytes.length * 2);
+            for (byte b : bytes) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(url.hashCode());
+        }
+    }
+}
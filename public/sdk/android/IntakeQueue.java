@@ -0,0 +1,133 @@
+package com.pushsdk;
+
+import android.os.Handler;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Очередь показа полученных уведомлений по приоритету
+ * Обычно уведомление проходит сразу. После переподключения сервер
+ * досылает накопленные сообщения пачкой - на время BACKLOG_WINDOW_MS
+ * они копятся и затем показываются от высокого приоритета к низкому,
+ * внутри приоритета - в порядке отправки.
+ */
+class IntakeQueue {
+    static final String PRIORITY_HIGH = "high";
+    static final String PRIORITY_NORMAL = "normal";
+    static final String PRIORITY_LOW = "low";
+
+    private static final long BACKLOG_WINDOW_MS = 250;
+
+    /**
+     * Показ уведомления и уведомление слушателя
+     */
+    interface Consumer {
+        void deliver(PushSDK.PushNotification notification);
+    }
+
+    private static final Comparator<PushSDK.PushNotification> ORDER = (a, b) -> {
+        int byPriority = Integer.compare(rank(a.priority), rank(b.priority));
+        if (byPriority != 0) {
+            return byPriority;
+        }
+        if (a.seq != b.seq) {
+            return Long.compare(a.seq, b.seq);
+        }
+        return Long.compare(a.receivedNanos, b.receivedNanos);
+    };
+
+    private final TaskLanes lanes;
+    private final Handler handler;
+    private final Consumer consumer;
+
+    private final PriorityQueue<PushSDK.PushNotification> queue = new PriorityQueue<>(16, ORDER);
+    private boolean holding = false;
+    private boolean drainScheduled = false;
+
+    private final Runnable endBacklog = this::endBacklog;
+
+    IntakeQueue(TaskLanes lanes, Handler handler, Consumer consumer) {
+        this.lanes = lanes;
+        this.handler = handler;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Приведение приоритета сервера к high, normal или low
+     * Кроме строк понимает числовой приоритет APNs (10 - high, 5 - normal)
+     */
+    static String normalize(String priority) {
+        if (priority == null) {
+            return PRIORITY_HIGH;
+        }
+        switch (priority.toLowerCase()) {
+            case "low":
+            case "min":
+            case "1":
+                return PRIORITY_LOW;
+            case "normal":
+            case "default":
+            case "medium":
+            case "5":
+                return PRIORITY_NORMAL;
+            default:
+                return PRIORITY_HIGH;
+        }
+    }
+
+    /**
+     * Дальше ожидается пачка накопленных сообщений
+     */
+    synchronized void beginBacklog() {
+        holding = true;
+        handler.removeCallbacks(endBacklog);
+        handler.postDelayed(endBacklog, BACKLOG_WINDOW_MS);
+    }
+
+    synchronized void offer(PushSDK.PushNotification notification) {
+        queue.add(notification);
+        if (!holding) {
+            scheduleDrain();
+        }
+    }
+
+    synchronized int size() {
+        return queue.size();
+    }
+
+    private synchronized void endBacklog() {
+        holding = false;
+        if (!queue.isEmpty()) {
+            scheduleDrain();
+        }
+    }
+
+    private void scheduleDrain() {
+        if (!drainScheduled) {
+            drainScheduled = true;
+            lanes.display(this::drain);
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            PushSDK.PushNotification next;
+            synchronized (this) {
+                next = holding ? null : queue.poll();
+                if (next == null) {
+                    drainScheduled = false;
+                    return;
+                }
+            }
+            consumer.deliver(next);
+        }
+    }
+
+    private static int rank(String priority) {
+        if (PRIORITY_LOW.equals(priority)) {
+            return 2;
+        }
+        return PRIORITY_NORMAL.equals(priority) ? 1 : 0;
+    }
+}
@@ -0,0 +1,341 @@
+package com.pushsdk;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+/**
+ * Кодек MessagePack для бинарных фреймов
+ * Используется, если сервер подтвердил encoding = msgpack в ответе registered.
+ * Поддерживает то же подмножество, что и src/providers/msgpack.js на сервере.
+ */
+final class MsgPackCodec {
+    static final String ENCODING = "msgpack";
+
+    private final byte[] bytes;
+    private int pos;
+
+    private MsgPackCodec(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    // Декодирование
+
+    /**
+     * Декодирование бинарного фрейма. Уведомление читается сразу
+     * в PushNotification, остальные поля пропускаются
+     */
+    static FrameDecoder.Frame decodeFrame(byte[] bytes) throws JSONException {
+        return new MsgPackCodec(bytes).readFrame();
+    }
+
+    /**
+     * Декодирование служебного фрейма в JSONObject
+     */
+    static JSONObject decodeObject(byte[] bytes) throws JSONException {
+        Object value = new MsgPackCodec(bytes).readValue();
+        if (!(value instanceof JSONObject)) {
+            throw new JSONException("Ожидался объект MessagePack");
+        }
+        return (JSONObject) value;
+    }
+
+    private FrameDecoder.Frame readFrame() throws JSONException {
+        FrameDecoder.Frame frame = new FrameDecoder.Frame();
+        PushSDK.PushNotification notification = new PushSDK.PushNotification();
+
+        int size = readMapHeader();
+        for (int i = 0; i < size; i++) {
+            String key = readString();
+            switch (key) {
+                case "type": frame.type = readNullableString(); break;
+                case "id": notification.id = readNullableString(); break;
+                case "title": notification.title = readNullableString(); break;
+                case "body": notification.body = readNullableString(); break;
+                case "icon": notification.icon = readNullableString(); break;
+                case "image": notification.image = readNullableString(); break;
+                case "url": notification.url = readNullableString(); break;
+                case "channelId": notification.channelId = readNullableString(); break;
+                case "group": notification.group = readNullableString(); break;
+                case "timestamp": notification.timestamp = FrameDecoder.parseTimestamp(readNullableString()); break;
+                case "priority": notification.priority = readNullableString(); break;
+                case "expiresAt": notification.expiresAt = readNumber(); break;
+                case "ttl": notification.ttl = readNumber(); break;
+                case "seq": notification.seq = readNumber(); break;
+                case "device": notification.device = readNullableString(); break;
+                case "templateId": notification.templateId = readNullableString(); break;
+                case "templateVersion": notification.templateVersion = readNumber(); break;
+                case "template": notification.templateJson = readObjectText(); break;
+                case "vars": notification.varsJson = readObjectText(); break;
+                case "data": {
+                    Object data = readValue();
+                    if (data instanceof JSONObject) {
+                        notification.data = (JSONObject) data;
+                    }
+                    break;
+                }
+                default:
+                    skip();
+            }
+        }
+
+        if ("notification".equals(frame.type)) {
+            frame.notification = notification;
+        }
+        return frame;
+    }
+
+    private int readMapHeader() throws JSONException {
+        int type = readByte();
+        if ((type & 0xf0) == 0x80) {
+            return type & 0x0f;
+        }
+        if (type == 0xde) {
+            return readUnsigned(2);
+        }
+        if (type == 0xdf) {
+            return readUnsigned(4);
+        }
+        throw error("Ожидался map");
+    }
+
+    private String readString() throws JSONException {
+        Object value = readValue();
+        if (!(value instanceof String)) {
+            throw error("Ожидалась строка");
+        }
+        return (String) value;
+    }
+
+    private String readNullableString() throws JSONException {
+        Object value = readValue();
+        if (value == null || value == JSONObject.NULL) {
+            return null;
+        }
+        return value.toString();
+    }
+
+    /**
+     * Целое число; JS кодирует значения больше 2^32 (например, Date.now()) как float64
+     */
+    private long readNumber() throws JSONException {
+        Object value = readValue();
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+
+    /**
+     * Вложенный объект в виде JSON - шаблон разбирается тем же кодом, что и для текстовых фреймов
+     */
+    private String readObjectText() throws JSONException {
+        Object value = readValue();
+        return value instanceof JSONObject ? value.toString() : null;
+    }
+
+    private void skip() throws JSONException {
+        // Значения во фреймах маленькие - пропуск через чтение достаточно дёшев
+        readValue();
+    }
+
+    private Object readValue() throws JSONException {
+        int type = readByte();
+
+        if (type < 0x80) {
+            return (long) type;
+        }
+        if (type >= 0xe0) {
+            return (long) (type - 0x100);
+        }
+        if ((type & 0xf0) == 0x80) {
+            return readMap(type & 0x0f);
+        }
+        if ((type & 0xf0) == 0x90) {
+            return readArray(type & 0x0f);
+        }
+        if ((type & 0xe0) == 0xa0) {
+            return readUtf8(type & 0x1f);
+        }
+
+        switch (type) {
+            case 0xc0: return JSONObject.NULL;
+            case 0xc2: return false;
+            case 0xc3: return true;
+            case 0xc4: return readUtf8(readUnsigned(1));
+            case 0xc5: return readUtf8(readUnsigned(2));
+            case 0xc6: return readUtf8(readUnsigned(4));
+            case 0xca: return (double) Float.intBitsToFloat((int) readLong(4));
+            case 0xcb: return Double.longBitsToDouble(readLong(8));
+            case 0xcc: return (long) readUnsigned(1);
+            case 0xcd: return (long) readUnsigned(2);
+            case 0xce: return readLong(4) & 0xffffffffL;
+            case 0xcf: return readLong(8);
+            case 0xd0: return (long) (byte) readLong(1);
+            case 0xd1: return (long) (short) readLong(2);
+            case 0xd2: return (long) (int) readLong(4);
+            case 0xd3: return readLong(8);
+            case 0xd9: return readUtf8(readUnsigned(1));
+            case 0xda: return readUtf8(readUnsigned(2));
+            case 0xdb: return readUtf8(readUnsigned(4));
+            case 0xdc: return readArray(readUnsigned(2));
+            case 0xdd: return readArray(readUnsigned(4));
+            case 0xde: return readMap(readUnsigned(2));
+            case 0xdf: return readMap(readUnsigned(4));
+            default:
+                throw error("Неподдерживаемый тип 0x" + Integer.toHexString(type));
+        }
+    }
+
+    private JSONObject readMap(int size) throws JSONException {
+        JSONObject result = new JSONObject();
+        for (int i = 0; i < size; i++) {
+            String key = readString();
+            result.put(key, readValue());
+        }
+        return result;
+    }
+
+    private JSONArray readArray(int size) throws JSONException {
+        JSONArray result = new JSONArray();
+        for (int i = 0; i < size; i++) {
+            result.put(readValue());
+        }
+        return result;
+    }
+
+    private String readUtf8(int length) throws JSONException {
+        require(length);
+        String value = new String(bytes, pos, length, StandardCharsets.UTF_8);
+        pos += length;
+        return value;
+    }
+
+    private int readByte() throws JSONException {
+        require(1);
+        return bytes[pos++] & 0xff;
+    }
+
+    private int readUnsigned(int size) throws JSONException {
+        long value = readLong(size);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw error("Слишком большая длина");
+        }
+        return (int) value;
+    }
+
+    private long readLong(int size) throws JSONException {
+        require(size);
+        long value = 0;
+        for (int i = 0; i < size; i++) {
+            value = (value << 8) | (bytes[pos++] & 0xff);
+        }
+        return value;
+    }
+
+    private void require(int size) throws JSONException {
+        if (size < 0 || pos + size > bytes.length) {
+            throw error("Неожиданный конец фрейма");
+        }
+    }
+
+    private JSONException error(String message) {
+        return new JSONException("MessagePack: " + message + " в позиции " + pos);
+    }
+
+    // Кодирование
+
+    /**
+     * Кодирование исходящего фрейма
+     */
+    static byte[] encode(JSONObject object) throws JSONException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        writeValue(out, object);
+        return out.toByteArray();
+    }
+
+    private static void writeValue(ByteArrayOutputStream out, Object value) throws JSONException {
+        if (value == null || value == JSONObject.NULL) {
+            out.write(0xc0);
+        } else if (value instanceof Boolean) {
+            out.write((Boolean) value ? 0xc3 : 0xc2);
+        } else if (value instanceof Integer || value instanceof Long
+                || value instanceof Short || value instanceof Byte) {
+            writeLong(out, ((Number) value).longValue());
+        } else if (value instanceof Number) {
+            out.write(0xcb);
+            writeBytes(out, Double.doubleToLongBits(((Number) value).doubleValue()), 8);
+        } else if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            writeHeader(out, object.length(), 0x80, 0xde, 0xdf);
+            Iterator<String> keys = object.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                writeString(out, key);
+                writeValue(out, object.get(key));
+            }
+        } else if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            writeHeader(out, array.length(), 0x90, 0xdc, 0xdd);
+            for (int i = 0; i < array.length(); i++) {
+                writeValue(out, array.get(i));
+            }
+        } else {
+            writeString(out, value.toString());
+        }
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long value) {
+        if (value >= 0 && value < 0x80) {
+            out.write((int) value);
+        } else if (value < 0 && value >= -32) {
+            out.write((int) (value & 0xff));
+        } else if (value >= 0 && value <= 0xffffffffL) {
+            out.write(0xce);
+            writeBytes(out, value, 4);
+        } else if (value >= Integer.MIN_VALUE && value < 0) {
+            out.write(0xd2);
+            writeBytes(out, value, 4);
+        } else {
+            out.write(0xd3);
+            writeBytes(out, value, 8);
+        }
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        int length = utf8.length;
+        if (length < 32) {
+            out.write(0xa0 | length);
+        } else if (length < 0x100) {
+            out.write(0xd9);
+            out.write(length);
+        } else if (length < 0x10000) {
+            out.write(0xda);
+            writeBytes(out, length, 2);
+        } else {
+            out.write(0xdb);
+            writeBytes(out, length, 4);
+        }
+        out.write(utf8, 0, length);
+    }
+
+    private static void writeHeader(ByteArrayOutputStream out, int size, int fix, int type16, int type32) {
+        if (size < 16) {
+            out.write(fix | size);
+        } else if (size < 0x10000) {
+            out.write(type16);
+            writeBytes(out, size, 2);
+        } else {
+            out.write(type32);
+            writeBytes(out, size, 4);
+        }
+    }
+
+    private static void writeBytes(ByteArrayOutputStream out, long value, int size) {
+        for (int i = size - 1; i >= 0; i--) {
+            out.write((int) (value >>> (i * 8)) & 0xff);
+        }
+    }
+}
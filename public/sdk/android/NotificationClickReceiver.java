@@ -13,7 +13,8 @@ public class NotificationClickReceiver extends BroadcastReceiver {
         String notificationId = intent.getStringExtra("notification_id");
         String url = intent.getStringExtra("url");
         String data = intent.getStringExtra("data");
+        String app = intent.getStringExtra("app");
         
-        PushSDK.getInstance(context).handleNotificationClick(notificationId, url, data);
+        PushSDK.getInstance(context).handleNotificationClick(notificationId, url, data, app);
     }
 }
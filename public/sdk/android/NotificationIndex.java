@@ -0,0 +1,201 @@
+package com.pushsdk;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Индекс недавно полученных уведомлений
+ * Кольцо из 64-битных хэшей id и хэш-таблица с открытой адресацией
+ * поверх него лежат в memory-mapped файле: поиск за O(1), размер
+ * фиксирован, данные переживают перезапуск процесса, а в куче
+ * остаётся только сам объект. Каждой записи выдаётся стабильный
+ * int id для NotificationManager без коллизий hashCode().
+ */
+class NotificationIndex {
+    private static final String TAG = "PushSDK";
+
+    private static final int MAGIC = 0x50534958; // "PSIX"
+    private static final int CAPACITY = 2048;               // записей в кольце
+    private static final int TABLE_SIZE = CAPACITY * 2;     // степень двойки, заполнение <= 0.5
+
+    // Заголовок: magic, capacity, head, nextId
+    private static final int HEADER_BYTES = 16;
+    private static final int OFFSET_HEAD = 8;
+    private static final int OFFSET_NEXT_ID = 12;
+    // Запись кольца: long hash + int notificationId
+    private static final int ENTRY_BYTES = 12;
+    private static final int RING_OFFSET = HEADER_BYTES;
+    private static final int TABLE_OFFSET = RING_OFFSET + CAPACITY * ENTRY_BYTES;
+    private static final int FILE_BYTES = TABLE_OFFSET + TABLE_SIZE * 4;
+
+    private final ByteBuffer buffer;
+
+    private NotificationIndex(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != CAPACITY) {
+            clear();
+        }
+    }
+
+    /**
+     * Открытие индекса. Если файл недоступен - индекс живёт
+     * только в памяти (вне кучи) до перезапуска процесса
+     */
+    static NotificationIndex open(File file) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(FILE_BYTES);
+            // Отображение остаётся действительным после закрытия файла
+            return new NotificationIndex(raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, FILE_BYTES));
+        } catch (IOException e) {
+            Log.e(TAG, "Ошибка открытия индекса уведомлений", e);
+            return new NotificationIndex(ByteBuffer.allocateDirect(FILE_BYTES));
+        }
+    }
+
+    /**
+     * Было ли уведомление уже получено
+     */
+    synchronized boolean contains(String notificationId) {
+        return find(hash(notificationId)) >= 0;
+    }
+
+    /**
+     * Отметка уведомления как полученного
+     * @return false, если оно уже есть в индексе
+     */
+    synchronized boolean markSeen(String notificationId) {
+        long hash = hash(notificationId);
+        if (find(hash) >= 0) {
+            return false;
+        }
+        insert(hash);
+        return true;
+    }
+
+    /**
+     * Стабильный id для NotificationManager
+     * Id выдаются по порядку, поэтому среди хранимых записей не повторяются
+     */
+    synchronized int notificationId(String notificationId) {
+        long hash = hash(notificationId);
+        int slot = find(hash);
+        if (slot < 0) {
+            slot = insert(hash);
+        }
+        return buffer.getInt(RING_OFFSET + slot * ENTRY_BYTES + 8);
+    }
+
+    // Хэш-таблица
+
+    /**
+     * Поиск записи кольца по хэшу
+     * @return номер записи или -1
+     */
+    private int find(long hash) {
+        int index = tableIndex(hash);
+        while (true) {
+            int slot = buffer.getInt(TABLE_OFFSET + index * 4) - 1;
+            if (slot < 0) {
+                return -1;
+            }
+            if (entryHash(slot) == hash) {
+                return slot;
+            }
+            index = (index + 1) & (TABLE_SIZE - 1);
+        }
+    }
+
+    private int insert(long hash) {
+        int head = buffer.getInt(OFFSET_HEAD);
+
+        // Вытесняем самую старую запись
+        long evicted = entryHash(head);
+        if (evicted != 0) {
+            removeFromTable(evicted, head);
+        }
+
+        int id = buffer.getInt(OFFSET_NEXT_ID);
+        buffer.putInt(OFFSET_NEXT_ID, id == Integer.MAX_VALUE ? 1 : id + 1);
+
+        int entry = RING_OFFSET + head * ENTRY_BYTES;
+        buffer.putLong(entry, hash);
+        buffer.putInt(entry + 8, id);
+
+        int index = tableIndex(hash);
+        while (buffer.getInt(TABLE_OFFSET + index * 4) != 0) {
+            index = (index + 1) & (TABLE_SIZE - 1);
+        }
+        buffer.putInt(TABLE_OFFSET + index * 4, head + 1);
+
+        buffer.putInt(OFFSET_HEAD, (head + 1) % CAPACITY);
+        return head;
+    }
+
+    /**
+     * Удаление со сдвигом назад, чтобы цепочки проб не рвались
+     */
+    private void removeFromTable(long hash, int slot) {
+        int index = tableIndex(hash);
+        while (buffer.getInt(TABLE_OFFSET + index * 4) != slot + 1) {
+            if (buffer.getInt(TABLE_OFFSET + index * 4) == 0) {
+                return;
+            }
+            index = (index + 1) & (TABLE_SIZE - 1);
+        }
+
+        int hole = index;
+        int next = (hole + 1) & (TABLE_SIZE - 1);
+        while (true) {
+            int value = buffer.getInt(TABLE_OFFSET + next * 4);
+            if (value == 0) {
+                break;
+            }
+            int home = tableIndex(entryHash(value - 1));
+            // Запись можно перенести в дыру, если её место не между дырой и ней
+            if (((next - home) & (TABLE_SIZE - 1)) >= ((next - hole) & (TABLE_SIZE - 1))) {
+                buffer.putInt(TABLE_OFFSET + hole * 4, value);
+                hole = next;
+            }
+            next = (next + 1) & (TABLE_SIZE - 1);
+        }
+        buffer.putInt(TABLE_OFFSET + hole * 4, 0);
+    }
+
+    private long entryHash(int slot) {
+        return buffer.getLong(RING_OFFSET + slot * ENTRY_BYTES);
+    }
+
+    private static int tableIndex(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & (TABLE_SIZE - 1);
+    }
+
+    private void clear() {
+        for (int i = 0; i < FILE_BYTES; i += 4) {
+            buffer.putInt(i, 0);
+        }
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, CAPACITY);
+        buffer.putInt(OFFSET_HEAD, 0);
+        buffer.putInt(OFFSET_NEXT_ID, 1);
+    }
+
+    /**
+     * 64-битный FNV-1a с перемешиванием. 0 зарезервирован под пустую запись
+     */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+}
@@ -0,0 +1,168 @@
+package com.pushsdk;
+
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Показ уведомлений с группировкой и ограничением частоты
+ * Одиночные уведомления показываются сразу. При всплеске уведомления
+ * одной группы (group с сервера или channelId) копятся в окне и
+ * сворачиваются в одну сводку InboxStyle, а вызовы notify не превышают
+ * лимит, после которого система начинает их отбрасывать.
+ * Все методы, кроме submit, выполняются в потоке показа.
+ */
+class NotificationRenderer {
+    private static final String TAG = "PushSDK";
+
+    private static final long WINDOW_MS = 300;
+    // Больше уведомлений в группе - показываем сводку
+    private static final int GROUP_THRESHOLD = 3;
+    // Группа без новых уведомлений дольше этого начинается заново
+    private static final long GROUP_IDLE_MS = 60 * 1000;
+    // Система отбрасывает notify чаще ~5-10 раз в секунду
+    private static final int MAX_NOTIFY_PER_SECOND = 5;
+    static final int SUMMARY_LINES = 5;
+
+    /**
+     * Вывод в NotificationManager
+     */
+    interface Poster {
+        void show(PushSDK.PushNotification notification, String group);
+        void showSummary(String group, List<PushSDK.PushNotification> recent, int total);
+    }
+
+    private static final class Group {
+        final List<PushSDK.PushNotification> pending = new ArrayList<>();
+        final ArrayDeque<PushSDK.PushNotification> recent = new ArrayDeque<>();
+        int total;
+        boolean summarized;
+        long lastActivity;
+    }
+
+    private final TaskLanes lanes;
+    private final Handler handler;
+    private final Poster poster;
+
+    private final Map<String, Group> groups = new LinkedHashMap<>();
+    // Время последних вызовов notify (скользящее окно в 1 секунду)
+    private final long[] notifyTimes = new long[MAX_NOTIFY_PER_SECOND];
+    private int notifyIndex = 0;
+    private boolean flushScheduled = false;
+
+    private final Runnable flushRunnable;
+
+    NotificationRenderer(TaskLanes lanes, Handler handler, Poster poster) {
+        this.lanes = lanes;
+        this.handler = handler;
+        this.poster = poster;
+        this.flushRunnable = () -> lanes.display(this::flush);
+    }
+
+    /**
+     * Постановка уведомления на показ (из любого потока)
+     */
+    void submit(PushSDK.PushNotification notification) {
+        lanes.display(() -> enqueue(notification));
+    }
+
+    /**
+     * Разрешение на ещё один вызов notify
+     */
+    boolean tryAcquire() {
+        long now = SystemClock.elapsedRealtime();
+        long oldest = notifyTimes[notifyIndex];
+        if (oldest != 0 && now - oldest < 1000) {
+            return false;
+        }
+        notifyTimes[notifyIndex] = now;
+        notifyIndex = (notifyIndex + 1) % MAX_NOTIFY_PER_SECOND;
+        return true;
+    }
+
+    private void enqueue(PushSDK.PushNotification notification) {
+        String key = notification.group != null ? notification.group : notification.channelId;
+        long now = SystemClock.elapsedRealtime();
+
+        Group group = groups.get(key);
+        if (group == null || (group.pending.isEmpty() && now - group.lastActivity > GROUP_IDLE_MS)) {
+            group = new Group();
+            groups.put(key, group);
+        }
+        group.lastActivity = now;
+        group.total++;
+        group.recent.addLast(notification);
+        if (group.recent.size() > SUMMARY_LINES) {
+            group.recent.removeFirst();
+        }
+
+        // Быстрый путь: одиночное уведомление без очереди
+        if (!flushScheduled && !group.summarized && group.total <= GROUP_THRESHOLD && tryAcquire()) {
+            poster.show(notification, key);
+            return;
+        }
+
+        group.pending.add(notification);
+        scheduleFlush(WINDOW_MS);
+    }
+
+    private void flush() {
+        flushScheduled = false;
+        long now = SystemClock.elapsedRealtime();
+
+        Iterator<Map.Entry<String, Group>> iterator = groups.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Group> entry = iterator.next();
+            Group group = entry.getValue();
+
+            if (group.pending.isEmpty()) {
+                if (now - group.lastActivity > GROUP_IDLE_MS) {
+                    iterator.remove();
+                }
+                continue;
+            }
+
+            if (!group.summarized && group.total <= GROUP_THRESHOLD) {
+                // Немного уведомлений - показываем по отдельности, пока есть лимит
+                Iterator<PushSDK.PushNotification> pending = group.pending.iterator();
+                while (pending.hasNext() && tryAcquire()) {
+                    poster.show(pending.next(), entry.getKey());
+                    pending.remove();
+                }
+            } else if (tryAcquire()) {
+                // Всплеск - одна сводка вместо множества уведомлений
+                poster.showSummary(entry.getKey(), new ArrayList<>(group.recent), group.total);
+                group.summarized = true;
+                group.pending.clear();
+            }
+        }
+
+        for (Group group : groups.values()) {
+            if (!group.pending.isEmpty()) {
+                Log.d(TAG, "Лимит показа уведомлений, откладываем");
+                scheduleFlush(untilNextSlot());
+                break;
+            }
+        }
+    }
+
+    private long untilNextSlot() {
+        long elapsed = SystemClock.elapsedRealtime() - notifyTimes[notifyIndex];
+        return Math.max(WINDOW_MS, 1000 - elapsed);
+    }
+
+    private void scheduleFlush(long delayMs) {
+        if (flushScheduled) {
+            return;
+        }
+        flushScheduled = true;
+        handler.postDelayed(flushRunnable, delayMs);
+    }
+}
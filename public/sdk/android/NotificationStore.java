@@ -0,0 +1,408 @@
+package com.pushsdk;
+
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Локальное хранилище полученных уведомлений (inbox)
+ * Append-only файл с уведомлениями и изменениями состояния, в памяти -
+ * индекс по времени получения и по каналу. Старые записи удаляются
+ * по TTL и лимиту при сжатии файла. Запись на диск идёт в фоне.
+ * Копия для процесса интерфейса (replica) читает файл один раз и дальше
+ * меняется только в памяти - пишет в файл процесс :push.
+ */
+class NotificationStore {
+    private static final String TAG = "PushSDK";
+    private static final String FILE_NAME = "push_inbox.log";
+
+    private static final int MAX_ENTRIES = 500;
+    private static final long TTL_MS = 30L * 24 * 60 * 60 * 1000;
+    private static final int COMPACT_THRESHOLD = MAX_ENTRIES * 2;
+
+    private static class Entry {
+        final long rowId;
+        final PushSDK.PushNotification notification;
+        boolean read;
+        boolean clicked;
+
+        Entry(long rowId, PushSDK.PushNotification notification) {
+            this.rowId = rowId;
+            this.notification = notification;
+        }
+    }
+
+    private final File file;
+    private final ExecutorService writer;
+    private final boolean readOnly;
+
+    // Индексы упорядочены по rowId, то есть по времени получения
+    private final List<Entry> all = new ArrayList<>();
+    private final Map<String, List<Entry>> byChannel = new HashMap<>();
+    private final Map<String, Entry> byId = new HashMap<>();
+    private long nextRowId = 1;
+    private int unread = 0;
+    private int linesWritten = 0;
+
+    NotificationStore(File filesDir, ExecutorService writer) {
+        this(filesDir, writer, false);
+    }
+
+    private NotificationStore(File filesDir, ExecutorService writer, boolean readOnly) {
+        this.file = new File(filesDir, FILE_NAME);
+        this.writer = writer;
+        this.readOnly = readOnly;
+        load();
+        if (evict() && !readOnly) {
+            writer.execute(this::compact);
+        }
+    }
+
+    /**
+     * Копия только для чтения в процессе, который не владеет файлом
+     */
+    static NotificationStore replica(File filesDir) {
+        return new NotificationStore(filesDir, null, true);
+    }
+
+    /**
+     * Сохранение полученного уведомления
+     */
+    synchronized void add(PushSDK.PushNotification notification) {
+        if (byId.containsKey(notification.id)) {
+            return;
+        }
+        Entry entry = new Entry(nextRowId++, notification);
+        index(entry);
+
+        try {
+            JSONObject line = toJson(entry);
+            write(line);
+        } catch (JSONException e) {
+            Log.e(TAG, "Ошибка записи в inbox", e);
+        }
+
+        if (all.size() > MAX_ENTRIES) {
+            evict();
+        }
+    }
+
+    /**
+     * Страница inbox от новых к старым
+     * @param channelId канал или null для всех уведомлений
+     * @param cursor nextCursor предыдущей страницы или 0 для первой
+     */
+    synchronized PushSDK.InboxPage query(String channelId, long cursor, int limit) {
+        List<Entry> source = channelId != null ? byChannel.get(channelId) : all;
+        List<PushSDK.PushNotification> items = new ArrayList<>();
+        if (source == null || limit <= 0) {
+            return new PushSDK.InboxPage(items, 0);
+        }
+
+        int index = cursor > 0 ? lowerBound(source, cursor) - 1 : source.size() - 1;
+        while (index >= 0 && items.size() < limit) {
+            items.add(copy(source.get(index)));
+            index--;
+        }
+
+        long nextCursor = index >= 0 ? source.get(index + 1).rowId : 0;
+        return new PushSDK.InboxPage(items, nextCursor);
+    }
+
+    synchronized int getUnreadCount(String channelId) {
+        if (channelId == null) {
+            return unread;
+        }
+        int count = 0;
+        List<Entry> entries = byChannel.get(channelId);
+        if (entries != null) {
+            for (Entry entry : entries) {
+                if (!entry.read) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Время получения последнего уведомления или 0, если inbox пуст
+     */
+    synchronized long lastReceivedAt() {
+        return all.isEmpty() ? 0 : all.get(all.size() - 1).notification.receivedAt;
+    }
+
+    synchronized void markRead(String notificationId) {
+        update(notificationId, false);
+    }
+
+    synchronized void markClicked(String notificationId) {
+        update(notificationId, true);
+    }
+
+    synchronized void markAllRead() {
+        for (Entry entry : all) {
+            entry.read = true;
+        }
+        unread = 0;
+        if (!readOnly) {
+            writer.execute(this::compact);
+        }
+    }
+
+    private void update(String notificationId, boolean clicked) {
+        Entry entry = byId.get(notificationId);
+        if (entry == null || (entry.read && (!clicked || entry.clicked))) {
+            return;
+        }
+        if (!entry.read) {
+            entry.read = true;
+            unread--;
+        }
+        entry.clicked |= clicked;
+
+        try {
+            JSONObject line = new JSONObject();
+            line.put(clicked ? "click" : "read", notificationId);
+            write(line);
+        } catch (JSONException e) {
+            Log.e(TAG, "Ошибка записи в inbox", e);
+        }
+    }
+
+    // Индекс
+
+    private void index(Entry entry) {
+        all.add(entry);
+        byId.put(entry.notification.id, entry);
+        String channelId = entry.notification.channelId;
+        List<Entry> channel = byChannel.get(channelId);
+        if (channel == null) {
+            channel = new ArrayList<>();
+            byChannel.put(channelId, channel);
+        }
+        channel.add(entry);
+        if (!entry.read) {
+            unread++;
+        }
+    }
+
+    /**
+     * Удаление просроченных записей и записей сверх лимита
+     * @return true, если что-то удалено
+     */
+    private boolean evict() {
+        long expired = System.currentTimeMillis() - TTL_MS;
+        int keepFrom = Math.max(0, all.size() - MAX_ENTRIES);
+        while (keepFrom < all.size() && all.get(keepFrom).notification.timestamp < expired) {
+            keepFrom++;
+        }
+        if (keepFrom == 0) {
+            return false;
+        }
+
+        List<Entry> kept = new ArrayList<>(all.subList(keepFrom, all.size()));
+        all.clear();
+        byChannel.clear();
+        byId.clear();
+        unread = 0;
+        for (Entry entry : kept) {
+            index(entry);
+        }
+        return true;
+    }
+
+    private static int lowerBound(List<Entry> entries, long rowId) {
+        int low = 0;
+        int high = entries.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (entries.get(mid).rowId < rowId) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static PushSDK.PushNotification copy(Entry entry) {
+        PushSDK.PushNotification source = entry.notification;
+        PushSDK.PushNotification result = new PushSDK.PushNotification();
+        result.id = source.id;
+        result.title = source.title;
+        result.body = source.body;
+        result.icon = source.icon;
+        result.image = source.image;
+        result.url = source.url;
+        result.channelId = source.channelId;
+        result.group = source.group;
+        result.priority = source.priority;
+        result.timestamp = source.timestamp;
+        result.receivedAt = source.receivedAt;
+        result.dataJson = source.getDataString();
+        result.read = entry.read;
+        result.clicked = entry.clicked;
+        return result;
+    }
+
+    // Работа с файлом
+
+    private static JSONObject toJson(Entry entry) throws JSONException {
+        JSONObject line = new JSONObject();
+        line.put("row", entry.rowId);
+        line.put("n", toJson(entry.notification));
+        if (entry.read) {
+            line.put("read", true);
+        }
+        if (entry.clicked) {
+            line.put("clicked", true);
+        }
+        return line;
+    }
+
+    /**
+     * Уведомление в JSON - для файла и для передачи между процессами
+     */
+    static JSONObject toJson(PushSDK.PushNotification n) throws JSONException {
+        JSONObject object = new JSONObject();
+        object.put("id", n.id);
+        object.put("title", n.title);
+        object.put("body", n.body);
+        object.put("icon", n.icon);
+        object.put("image", n.image);
+        object.put("url", n.url);
+        object.put("channelId", n.channelId);
+        object.put("group", n.group);
+        object.put("priority", n.priority);
+        object.put("timestamp", n.timestamp);
+        object.put("receivedAt", n.receivedAt);
+        object.put("data", n.getDataString());
+        return object;
+    }
+
+    static PushSDK.PushNotification fromJson(JSONObject object) {
+        PushSDK.PushNotification n = new PushSDK.PushNotification();
+        n.id = object.optString("id", null);
+        n.title = object.optString("title", "");
+        n.body = object.optString("body", "");
+        n.icon = object.optString("icon", null);
+        n.image = object.optString("image", null);
+        n.url = object.optString("url", null);
+        n.channelId = object.optString("channelId", null);
+        n.group = object.optString("group", null);
+        n.priority = object.optString("priority", null);
+        n.timestamp = object.optLong("timestamp");
+        n.receivedAt = object.optLong("receivedAt");
+        n.dataJson = object.optString("data", null);
+        return n;
+    }
+
+    private void write(JSONObject line) {
+        if (readOnly) {
+            return;
+        }
+        String text = line.toString();
+        writer.execute(() -> append(text));
+    }
+
+    private synchronized void append(String text) {
+        if (linesWritten >= COMPACT_THRESHOLD) {
+            compact();
+        }
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8)) {
+            out.write(text);
+            out.write('\n');
+            linesWritten++;
+        } catch (IOException e) {
+            Log.e(TAG, "Ошибка записи файла inbox", e);
+        }
+    }
+
+    /**
+     * Перезапись файла только с актуальными записями и их состоянием
+     */
+    private synchronized void compact() {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            for (Entry entry : all) {
+                out.write(toJson(entry).toString());
+                out.write('\n');
+            }
+        } catch (IOException | JSONException e) {
+            Log.e(TAG, "Ошибка сжатия файла inbox", e);
+            return;
+        }
+
+        if (tmp.renameTo(file)) {
+            linesWritten = all.size();
+        }
+    }
+
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String text;
+            while ((text = reader.readLine()) != null) {
+                linesWritten++;
+                JSONObject line;
+                try {
+                    line = new JSONObject(text);
+                } catch (JSONException e) {
+                    // Недописанная строка после сбоя - пропускаем
+                    continue;
+                }
+
+                JSONObject object = line.optJSONObject("n");
+                if (object != null) {
+                    PushSDK.PushNotification notification = fromJson(object);
+                    if (notification.id == null || byId.containsKey(notification.id)) {
+                        continue;
+                    }
+                    Entry entry = new Entry(line.optLong("row"), notification);
+                    entry.read = line.optBoolean("read", false);
+                    entry.clicked = line.optBoolean("clicked", false);
+                    index(entry);
+                    nextRowId = Math.max(nextRowId, entry.rowId + 1);
+                } else if (line.has("click")) {
+                    applyState(line.optString("click"), true);
+                } else if (line.has("read")) {
+                    applyState(line.optString("read"), false);
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Ошибка чтения файла inbox", e);
+        }
+    }
+
+    private void applyState(String notificationId, boolean clicked) {
+        Entry entry = byId.get(notificationId);
+        if (entry == null) {
+            return;
+        }
+        if (!entry.read) {
+            entry.read = true;
+            unread--;
+        }
+        entry.clicked |= clicked;
+    }
+}
@@ -0,0 +1,80 @@
+package com.pushsdk;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+
+/**
+ * Периодический опрос сервера, когда WebSocket не удерживается
+ * JobScheduler запускает задачу вместе с другой фоновой работой системы,
+ * в том числе после остановки процесса. Если соединение открыто,
+ * задача завершается без сетевых запросов.
+ */
+public class PollJobService extends JobService {
+    private static final String TAG = "PushSDK";
+
+    static final int JOB_ID = 0x50555348;
+    // Минимальный период JobScheduler, система сдвигает запуск в пределах flex
+    private static final long INTERVAL_MS = 15 * 60 * 1000;
+    private static final long FLEX_MS = 5 * 60 * 1000;
+    private static final long BACKOFF_MS = 60 * 1000;
+
+    /**
+     * Планирование опроса (повторный вызов не сбрасывает расписание)
+     */
+    static void schedule(Context context) {
+        JobScheduler scheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (scheduler == null) {
+            return;
+        }
+        boolean modern = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N;
+        if (modern && scheduler.getPendingJob(JOB_ID) != null) {
+            return;
+        }
+
+        JobInfo.Builder builder = new JobInfo.Builder(JOB_ID, new ComponentName(context, PollJobService.class))
+            .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+            .setBackoffCriteria(BACKOFF_MS, JobInfo.BACKOFF_POLICY_EXPONENTIAL)
+            .setPersisted(true);
+        if (modern) {
+            builder.setPeriodic(INTERVAL_MS, FLEX_MS);
+        } else {
+            // До API 24 нет flex и getPendingJob: повторное планирование лишь сдвигает период
+            builder.setPeriodic(INTERVAL_MS);
+        }
+        JobInfo job = builder.build();
+
+        try {
+            if (scheduler.schedule(job) != JobScheduler.RESULT_SUCCESS) {
+                Log.e(TAG, "Не удалось запланировать опрос");
+            }
+        } catch (RuntimeException e) {
+            // Нет службы в манифесте или RECEIVE_BOOT_COMPLETED для persisted-задачи
+            Log.e(TAG, "Не удалось запланировать опрос", e);
+        }
+    }
+
+    static void cancel(Context context) {
+        JobScheduler scheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (scheduler != null) {
+            scheduler.cancel(JOB_ID);
+        }
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        PushSDK.getInstance(getApplicationContext()).poll(success -> jobFinished(params, !success));
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // Система прервала задачу - повторим по backoff
+        return true;
+    }
+}
@@ -0,0 +1,181 @@
+package com.pushsdk;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Метрики доставки (включаются явно)
+ * Длительности этапов пишутся в гистограммы без блокировок,
+ * счётчики - в атомарные ячейки. snapshot() забирает накопленное
+ * и обнуляет его, поэтому каждая выгрузка содержит только свой интервал.
+ */
+class PushMetrics {
+    // Этапы
+    static final int SPAN_DELIVERY = 0; // timestamp сервера -> получение фрейма
+    static final int SPAN_PARSE = 1;    // декодирование фрейма
+    static final int SPAN_IMAGE = 2;    // загрузка изображения
+    static final int SPAN_NOTIFY = 3;   // получение фрейма -> notify
+    static final int SPAN_ACK = 4;      // отправка ack_batch -> ответ сервера
+    private static final String[] SPAN_NAMES = {"delivery", "parse", "image", "notify", "ack"};
+
+    // Счётчики
+    static final int RECONNECTS = 0;
+    static final int BYTES_IN = 1;
+    static final int BYTES_OUT = 2;
+    static final int FRAMES_IN = 3;
+    static final int NOTIFICATIONS = 4;
+    static final int DUPLICATES = 5;
+    static final int EXPIRED = 6;
+    private static final String[] COUNTER_NAMES =
+        {"reconnects", "bytesIn", "bytesOut", "framesIn", "notifications", "duplicates", "expired"};
+
+    private final Histogram[] spans = new Histogram[SPAN_NAMES.length];
+    private final AtomicLongArray counters = new AtomicLongArray(COUNTER_NAMES.length);
+    private volatile boolean enabled = false;
+    private volatile long intervalStart = System.currentTimeMillis();
+
+    PushMetrics() {
+        for (int i = 0; i < spans.length; i++) {
+            spans[i] = new Histogram();
+        }
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Длительность этапа в микросекундах
+     */
+    void record(int span, long micros) {
+        if (enabled) {
+            spans[span].record(Math.max(0, micros));
+        }
+    }
+
+    /**
+     * Длительность этапа от момента System.nanoTime()
+     */
+    void recordSince(int span, long startNanos) {
+        if (enabled) {
+            record(span, (System.nanoTime() - startNanos) / 1000);
+        }
+    }
+
+    void count(int counter, long delta) {
+        if (enabled) {
+            counters.addAndGet(counter, delta);
+        }
+    }
+
+    /**
+     * Выгрузка интервала с обнулением
+     * @param queues текущая глубина очередей
+     */
+    JSONObject snapshot(Map<String, Integer> queues) throws JSONException {
+        long now = System.currentTimeMillis();
+        JSONObject batch = new JSONObject();
+        batch.put("from", intervalStart);
+        batch.put("to", now);
+        intervalStart = now;
+
+        JSONObject spanValues = new JSONObject();
+        for (int i = 0; i < spans.length; i++) {
+            JSONObject span = spans[i].drain();
+            if (span != null) {
+                spanValues.put(SPAN_NAMES[i], span);
+            }
+        }
+        batch.put("spans", spanValues);
+
+        JSONObject counterValues = new JSONObject();
+        for (int i = 0; i < COUNTER_NAMES.length; i++) {
+            counterValues.put(COUNTER_NAMES[i], counters.getAndSet(i, 0));
+        }
+        batch.put("counters", counterValues);
+
+        JSONObject queueValues = new JSONObject();
+        for (Map.Entry<String, Integer> entry : queues.entrySet()) {
+            queueValues.put(entry.getKey(), entry.getValue());
+        }
+        batch.put("queues", queueValues);
+        return batch;
+    }
+
+    /**
+     * Гистограмма с корзинами по степеням двойки (в микросекундах)
+     * Корзины складываются между устройствами на сервере без потерь,
+     * перцентили считаются по верхней границе корзины.
+     */
+    static final class Histogram {
+        private static final int BUCKETS = 40; // до 2^39 мкс, около 6 суток
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long micros) {
+            int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+            buckets.incrementAndGet(bucket);
+
+            long current = max.get();
+            while (micros > current && !max.compareAndSet(current, micros)) {
+                current = max.get();
+            }
+        }
+
+        /**
+         * Сводка с обнулением или null, если значений не было
+         */
+        JSONObject drain() throws JSONException {
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            int last = -1;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.getAndSet(i, 0);
+                total += counts[i];
+                if (counts[i] > 0) {
+                    last = i;
+                }
+            }
+            long maxValue = max.getAndSet(0);
+            if (total == 0) {
+                return null;
+            }
+
+            JSONArray compact = new JSONArray();
+            for (int i = 0; i <= last; i++) {
+                compact.put(counts[i]);
+            }
+
+            JSONObject result = new JSONObject();
+            result.put("count", total);
+            result.put("p50", percentile(counts, total, 0.50));
+            result.put("p90", percentile(counts, total, 0.90));
+            result.put("p99", percentile(counts, total, 0.99));
+            result.put("max", maxValue);
+            result.put("buckets", compact);
+            return result;
+        }
+
+        private static long percentile(long[] counts, long total, double quantile) {
+            long rank = (long) Math.ceil(total * quantile);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return i == 0 ? 0 : 1L << i;
+                }
+            }
+            return 1L << (counts.length - 1);
+        }
+    }
+}
@@ -8,11 +8,14 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
+import android.net.ConnectivityManager;
+import android.net.Network;
 import android.net.Uri;
 import android.os.Build;
+import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.core.app.NotificationCompat;
@@ -21,21 +24,23 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CountDownLatch;
+import java.util.zip.DataFormatException;
 
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 import okhttp3.WebSocket;
 import okhttp3.WebSocketListener;
+import okio.ByteString;
 
 /**
  * Push Notification SDK для Android
@@ -47,6 +52,28 @@ public class PushSDK {
     private static final String PREFS_NAME = "PushSDKPrefs";
     private static final String KEY_DEVICE_ID = "device_id";
     private static final String KEY_TOKEN = "token";
+    private static final String KEY_SERVER_URL = "server_url";
+    private static final String KEY_API_KEY = "api_key";
+    // connect() без disconnect(): перезапущенная служба подключается сама
+    private static final String KEY_CONNECT_REQUESTED = "connect_requested";
+    private static final String KEY_LAST_ACTIVITY = "last_activity";
+    private static final String OP_METRICS = "metrics";
+    // Причина закрытия: сервер принял новое соединение этого устройства
+    private static final String REASON_REPLACED = "replaced";
+    // Заменившее соединение тоже может оборваться - тогда вернёмся не раньше, чем через столько
+    private static final long REPLACED_RECONNECT_MS = 10 * 60 * 1000;
+    // Регистрация дополнительного приложения: op = префикс + его API ключ
+    private static final String OP_APP_PREFIX = "app:";
+    // Канал, который сервер подставляет, если отправитель его не указал
+    private static final String SERVER_DEFAULT_CHANNEL = "default";
+    
+    // Фоновый режим опроса вместо WebSocket
+    private static final int POLL_FALLBACK_ATTEMPTS = 5;         // неудачных переподключений в фоне
+    private static final long BACKGROUND_GRACE_MS = 5 * 60 * 1000;
+    private static final long LOW_ACTIVITY_MS = 3L * 24 * 60 * 60 * 1000;
+    // Время активности сохраняется не чаще раза в час
+    private static final long ACTIVITY_PERSIST_MS = 60 * 60 * 1000;
+    private static final int POLL_WAIT_S = 10;                   // long-poll на сервере
     
     private static PushSDK instance;
     
@@ -57,22 +84,62 @@ public class PushSDK {
     private String deviceId;
     private String token;
     
-    private OkHttpClient client;
-    private WebSocket webSocket;
-    private boolean isConnected = false;
-    private boolean shouldReconnect = true;
+    private OkHttpClient client;   // REST-запросы и изображения
+    private OkHttpClient wsClient; // WebSocket соединение
+    private volatile WebSocket webSocket;
+    // Фаза соединения и поколение сокета, меняются только через CAS
+    private final ConnectionState connection = new ConnectionState();
+    // Сервер подтвердил бинарные фреймы MessagePack для текущего соединения
+    private volatile boolean binaryFrames = false;
     
     private Handler mainHandler;
-    private ExecutorService executor;
+    private TaskLanes lanes;
+    private NotificationRenderer renderer;
+    private IntakeQueue intake;
+    private NotificationStore inbox;
+    // Шаблоны кампаний: рассылка приходит как templateId и переменные
+    private final TemplateCache templates = new TemplateCache();
+    // Сроки уведомлений сравниваются по часам сервера
+    private final ServerClock serverClock = new ServerClock();
+    // Дополнительные приложения в этом же соединении
+    private AppRegistry apps;
+    
+    private final PushMetrics metrics = new PushMetrics();
+    private MetricsListener metricsListener;
+    private long metricsIntervalMs;
+    private final Runnable metricsExport = this::exportMetrics;
+    private EventBatcher eventBatcher;
+    private RestOutbox outbox;
+    private ImageCache imageCache;
+    private SessionStore session;
+    private NotificationIndex seenIndex;
     
     private NotificationManager notificationManager;
     private String defaultChannelId = "push_notifications";
+    // Каналы для обычного и низкого приоритета (высокий - defaultChannelId)
+    private String normalChannelId = "push_notifications_normal";
+    private String lowChannelId = "push_notifications_low";
     
     private PushListener listener;
+    // Слушатель PushService: пересылает события в процессы интерфейса
+    private volatile PushListener remoteListener;
+    // Соединение держит PushService в другом процессе, здесь - только прокси
+    private RemotePushClient remote;
+    
+    private ReconnectScheduler reconnectScheduler;
+    private Heartbeat heartbeat;
+    // Последнее уведомление или первое подключение (0 - неизвестно)
+    private volatile long lastActivityAt;
+    private boolean networkCallbackRegistered = false;
+    
+    private AppVisibility visibility;
+    // Соединение не держится, уведомления забирает PollJobService
+    private volatile boolean pollMode = false;
+    private final Runnable lowActivityCheck = () -> whenReady(this::checkLowActivity);
     
-    private int reconnectAttempts = 0;
-    private static final int MAX_RECONNECT_ATTEMPTS = 10;
-    private static final long RECONNECT_DELAY_MS = 5000;
+    // Состояние загружено с диска (bootstrap)
+    private volatile boolean ready = false;
+    private final CountDownLatch readyLatch = new CountDownLatch(1);
     
     public interface PushListener {
         void onConnected();
@@ -82,6 +149,21 @@ public class PushSDK {
         void onError(String error);
     }
     
+    /**
+     * Получатель метрик доставки
+     * batch: spans (мкс: count, p50, p90, p99, max, buckets), counters, queues
+     */
+    public interface MetricsListener {
+        void onMetrics(JSONObject batch);
+    }
+    
+    /**
+     * Результат фонового опроса
+     */
+    interface PollCallback {
+        void onComplete(boolean success);
+    }
+    
     public static class PushNotification {
         public String id;
         public String title;
@@ -89,20 +171,171 @@ public class PushSDK {
         public String icon;
         public String image;
         public String url;
+        // Заполнено к моменту вызова PushListener и в страницах inbox
         public JSONObject data;
         public String channelId;
+        // Ключ группировки, если не задан - группируется по channelId
+        public String group;
+        // Приоритет: high, normal или low
+        public String priority;
+        // Время отправки сервером (мс), если сервер его не передал - время получения
         public long timestamp;
+        // Время получения на устройстве (мс)
+        public long receivedAt;
+        // Состояние в локальном inbox
+        public boolean read;
+        public boolean clicked;
+        
+        // Исходный JSON объекта data, разбирается при первом обращении
+        String dataJson;
+        // Номер сообщения в сессии WebSocket (0 - без номера)
+        long seq;
+        // Срок действия: время сервера (мс) или TTL в секундах от timestamp, 0 - без срока
+        long expiresAt;
+        long ttl;
+        // System.nanoTime() получения фрейма, для метрик
+        long receivedNanos;
+        // Устройство дополнительного приложения из фрейма и API ключ этого приложения
+        String device;
+        String app;
+        // Рассылка по шаблону: ссылка на шаблон, его JSON (только в первом фрейме) и переменные
+        String templateId;
+        long templateVersion;
+        String templateJson;
+        String varsJson;
+        
+        /**
+         * Дополнительные данные уведомления
+         * Внутри SDK разбираются из фрейма только при первом вызове
+         */
+        public synchronized JSONObject getData() {
+            if (data == null && dataJson != null) {
+                try {
+                    data = new JSONObject(dataJson);
+                } catch (JSONException e) {
+                    Log.e(TAG, "Ошибка разбора data", e);
+                }
+                dataJson = null;
+            }
+            return data;
+        }
+        
+        /**
+         * data в виде строки без лишнего разбора
+         */
+        synchronized String getDataString() {
+            if (dataJson != null) {
+                return dataJson;
+            }
+            return data != null ? data.toString() : null;
+        }
+    }
+    
+    /**
+     * Страница локального inbox
+     */
+    public static class InboxPage {
+        public final List<PushNotification> notifications;
+        // Курсор следующей страницы, 0 - страниц больше нет
+        public final long nextCursor;
+        
+        InboxPage(List<PushNotification> notifications, long nextCursor) {
+            this.notifications = notifications;
+            this.nextCursor = nextCursor;
+        }
     }
     
     private PushSDK(Context context) {
         this.context = context.getApplicationContext();
         this.mainHandler = new Handler(Looper.getMainLooper());
-        this.executor = Executors.newSingleThreadExecutor();
-        this.notificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        this.lanes = new TaskLanes();
+        this.renderer = new NotificationRenderer(lanes, mainHandler, new NotificationRenderer.Poster() {
+            @Override
+            public void show(PushNotification notification, String group) {
+                showNotification(notification, group);
+            }
+            
+            @Override
+            public void showSummary(String group, List<PushNotification> recent, int total) {
+                showGroupSummary(group, recent, total);
+            }
+        });
+        this.intake = new IntakeQueue(lanes, mainHandler, this::deliver);
         
-        // Загружаем сохранённые данные
+        // На экране - WebSocket, в фоне при малой активности - опрос
+        this.visibility = AppVisibility.register(this.context, new AppVisibility.Listener() {
+            @Override
+            public void onForeground() {
+                whenReady(() -> {
+                    if (remote != null) {
+                        remote.call(RemotePushClient.CALL_FOREGROUND);
+                    } else {
+                        leavePollMode();
+                    }
+                });
+            }
+            
+            @Override
+            public void onBackground() {
+                whenReady(() -> {
+                    if (remote != null) {
+                        remote.call(RemotePushClient.CALL_BACKGROUND);
+                        return;
+                    }
+                    mainHandler.removeCallbacks(lowActivityCheck);
+                    mainHandler.postDelayed(lowActivityCheck, BACKGROUND_GRACE_MS);
+                });
+            }
+        });
+        
+        // Диск и IPC - в фоне, getInstance() возвращается сразу
+        lanes.control(this::bootstrap);
+    }
+    
+    /**
+     * Загрузка состояния SDK (первая задача потока control)
+     */
+    private void bootstrap() {
+        long start = SystemClock.elapsedRealtime();
+        
+        // До проверки видимости connect() принял бы открытое приложение за фоновое
+        visibility.checkInitial();
+        
+        if (RemotePushClient.isServiceInOtherProcess(context)) {
+            bootstrapRemote();
+        } else {
+            bootstrapLocal();
+        }
+        
+        ready = true;
+        readyLatch.countDown();
+        Log.d(TAG, "SDK загружен за " + (SystemClock.elapsedRealtime() - start) + "мс"
+            + (remote != null ? " (PushService в отдельном процессе)" : ""));
+    }
+    
+    /**
+     * Процесс интерфейса при PushService в отдельном процессе
+     * Inbox - копия только для чтения, её обновляют события службы
+     */
+    private void bootstrapRemote() {
         SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
         this.deviceId = prefs.getString(KEY_DEVICE_ID, null);
+        this.inbox = NotificationStore.replica(context.getFilesDir());
+        // Регистрирует приложения служба, здесь - только их слушатели
+        this.apps = new AppRegistry(null);
+        this.remote = new RemotePushClient(context, visibility, this::onRemoteEvent);
+        remote.bind();
+    }
+    
+    /**
+     * Процесс, который держит соединение
+     */
+    private void bootstrapLocal() {
+        this.notificationManager = (NotificationManager) this.context.getSystemService(Context.NOTIFICATION_SERVICE);
+        
+        // Загружаем сохранённые данные
+        SharedPreferences prefs = this.context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.deviceId = prefs.getString(KEY_DEVICE_ID, null);
         this.token = prefs.getString(KEY_TOKEN, null);
         
         if (deviceId == null) {
@@ -114,10 +347,81 @@ public class PushSDK {
             token = UUID.randomUUID().toString();
             prefs.edit().putString(KEY_TOKEN, token).apply();
         }
+        this.lastActivityAt = prefs.getLong(KEY_LAST_ACTIVITY, 0);
         
         createNotificationChannel();
+        this.apps = new AppRegistry(this.context);
+        
+        // Состояние сессии для возобновления без повторной доставки
+        this.session = new SessionStore(this.context);
+        this.seenIndex = NotificationIndex.open(new File(this.context.getFilesDir(), "push_seen.idx"));
+        
+        // ACK и клики отправляются пакетами
+        this.eventBatcher = new EventBatcher(this.context, mainHandler, this::sendFrame, metrics);
+        
+        // Переподключения планируются в отдельном потоке
+        this.reconnectScheduler = new ReconnectScheduler(() -> {
+            if (!pollMode && connectWebSocket()) {
+                metrics.count(PushMetrics.RECONNECTS, 1);
+            }
+        });
+        
+        // Полученные уведомления хранятся локально для inbox
+        this.inbox = new NotificationStore(this.context.getFilesDir(), lanes.apiExecutor());
+        
+        // Heartbeat отправляет клиент, интервал подбирается под сеть
+        this.heartbeat = new Heartbeat(this.context, new Heartbeat.Connection() {
+            @Override
+            public boolean sendPing() {
+                try {
+                    return sendFrame(new JSONObject().put("type", "ping"));
+                } catch (JSONException e) {
+                    return false;
+                }
+            }
+            
+            @Override
+            public void onDead() {
+                // Закрытие без handshake, onFailure запустит переподключение
+                WebSocket socket = webSocket;
+                if (socket != null) {
+                    socket.cancel();
+                }
+            }
+        });
+        
+        // REST-вызовы идут через персистентную очередь
+        this.outbox = new RestOutbox(this.context.getFilesDir(), lanes.apiExecutor(), mainHandler, this::executeRestCall);
+    }
+    
+    /**
+     * Выполнение после загрузки SDK
+     * Загрузка - первая задача потока control, поэтому всё поставленное
+     * туда позже выполняется после неё и в порядке вызовов
+     */
+    void whenReady(Runnable action) {
+        lanes.control(action);
+    }
+    
+    /**
+     * Ожидание загрузки для синхронных методов, вызванных слишком рано
+     */
+    private void awaitReady() {
+        if (ready) {
+            return;
+        }
+        try {
+            readyLatch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
     
+    /**
+     * Экземпляр SDK
+     * Возвращается сразу: состояние загружается в фоне, вызовы API
+     * до окончания загрузки выполняются после неё по порядку
+     */
     public static synchronized PushSDK getInstance(Context context) {
         if (instance == null) {
             instance = new PushSDK(context);
@@ -127,10 +431,37 @@ public class PushSDK {
     
     /**
      * Инициализация SDK
+     * Возвращается сразу, HTTP-клиенты создаются в фоне
      * @param serverUrl URL сервера (например: https://push.yoursite.com)
      * @param apiKey API ключ приложения
      */
     public void init(String serverUrl, String apiKey) {
+        if (this.apiKey != null && !this.apiKey.equals(apiKey)) {
+            Log.w(TAG, "init() с другим API ключом заменяет приложение, для нескольких приложений - addApp()");
+        }
+        applyConfig(serverUrl, apiKey);
+        
+        whenReady(() -> {
+            if (remote != null) {
+                Bundle args = new Bundle();
+                args.putString("serverUrl", serverUrl);
+                args.putString("apiKey", apiKey);
+                remote.call(RemotePushClient.CALL_INIT, args);
+                return;
+            }
+            createClients();
+            
+            // Фоновый опрос может запустить процесс без вызова init()
+            context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit()
+                .putString(KEY_SERVER_URL, serverUrl)
+                .putString(KEY_API_KEY, apiKey)
+                .apply();
+        });
+        
+        Log.d(TAG, "SDK инициализирован. WebSocket URL: " + wsUrl);
+    }
+    
+    private void applyConfig(String serverUrl, String apiKey) {
         this.serverUrl = serverUrl;
         this.apiKey = apiKey;
         
@@ -142,14 +473,17 @@ public class PushSDK {
         } else {
             this.wsUrl = "ws://" + serverUrl + "/ws/android";
         }
-        
-        // Создаём HTTP клиент с поддержкой WebSocket
-        client = new OkHttpClient.Builder()
-            .readTimeout(0, TimeUnit.MILLISECONDS) // Без таймаута для WebSocket
-            .pingInterval(30, TimeUnit.SECONDS)
-            .build();
-        
-        Log.d(TAG, "SDK инициализирован. WebSocket URL: " + wsUrl);
+    }
+    
+    /**
+     * Клиенты создаются один раз: пул соединений и TLS-сессии переиспользуются
+     */
+    private synchronized void createClients() {
+        if (client == null) {
+            client = HttpClients.createRestClient();
+            wsClient = HttpClients.createWebSocketClient(client);
+            imageCache = new ImageCache(context.getCacheDir(), client);
+        }
     }
     
     /**
@@ -159,8 +493,125 @@ public class PushSDK {
         this.listener = listener;
     }
     
+    /**
+     * Дополнительное приложение в том же соединении: white-label сборка
+     * или встроенный модуль со своим API ключом. Вызывается при каждом
+     * запуске, как setListener; устройство приложения регистрируется один раз
+     * @param apiKey API ключ приложения
+     * @param channelId канал Android для его уведомлений (null - каналы SDK)
+     * @param channelName название канала в настройках системы
+     * @param listener слушатель событий этого приложения (null - основной)
+     */
+    public void addApp(String apiKey, String channelId, String channelName, PushListener listener) {
+        whenReady(() -> {
+            AppRegistry.App app = apps.add(apiKey, channelId, listener);
+            if (remote != null) {
+                Bundle args = new Bundle();
+                args.putString("apiKey", apiKey);
+                args.putString("channelId", channelId);
+                args.putString("channelName", channelName);
+                remote.call(RemotePushClient.CALL_ADD_APP, args);
+                return;
+            }
+            createAppChannel(channelId, channelName);
+            if (app.deviceId == null) {
+                registerApp(app);
+            } else {
+                attachApps();
+            }
+        });
+    }
+    
+    /**
+     * Локальный inbox: полученные уведомления от новых к старым
+     * @param cursor nextCursor предыдущей страницы или 0 для первой
+     */
+    public InboxPage getInbox(long cursor, int limit) {
+        return getInbox(null, cursor, limit);
+    }
+    
+    /**
+     * Локальный inbox одного канала
+     */
+    public InboxPage getInbox(String channelId, long cursor, int limit) {
+        awaitReady();
+        InboxPage page = inbox.query(channelId, cursor, limit);
+        for (PushNotification notification : page.notifications) {
+            notification.getData();
+        }
+        return page;
+    }
+    
+    /**
+     * Число непрочитанных уведомлений в inbox
+     */
+    public int getUnreadCount() {
+        awaitReady();
+        return inbox.getUnreadCount(null);
+    }
+    
+    public int getUnreadCount(String channelId) {
+        awaitReady();
+        return inbox.getUnreadCount(channelId);
+    }
+    
+    public void markRead(String notificationId) {
+        whenReady(() -> {
+            inbox.markRead(notificationId);
+            if (remote != null) {
+                Bundle args = new Bundle();
+                args.putString("notificationId", notificationId);
+                remote.call(RemotePushClient.CALL_MARK_READ, args);
+            }
+        });
+    }
+    
+    public void markAllRead() {
+        whenReady(() -> {
+            inbox.markAllRead();
+            if (remote != null) {
+                remote.call(RemotePushClient.CALL_MARK_ALL_READ);
+            }
+        });
+    }
+    
+    /**
+     * Включение метрик доставки
+     * @param intervalMs период выгрузки
+     * @param listener получатель пакета или null - пакет отправляется на сервер
+     */
+    public void enableMetrics(long intervalMs, MetricsListener listener) {
+        metricsListener = listener;
+        metricsIntervalMs = intervalMs;
+        whenReady(() -> {
+            if (remote != null) {
+                // Метрики собирает процесс с соединением, пакеты приходят событием
+                Bundle args = new Bundle();
+                args.putLong("intervalMs", intervalMs);
+                args.putBoolean("listener", listener != null);
+                remote.call(RemotePushClient.CALL_ENABLE_METRICS, args);
+                return;
+            }
+            metrics.setEnabled(true);
+            mainHandler.removeCallbacks(metricsExport);
+            mainHandler.postDelayed(metricsExport, intervalMs);
+        });
+    }
+    
+    public void disableMetrics() {
+        whenReady(() -> {
+            if (remote != null) {
+                remote.call(RemotePushClient.CALL_DISABLE_METRICS);
+                return;
+            }
+            metrics.setEnabled(false);
+            mainHandler.removeCallbacks(metricsExport);
+        });
+    }
+    
     /**
      * Подключение к серверу и регистрация устройства
+     * Выполняется в фоне после загрузки SDK
      */
     public void connect() {
         if (serverUrl == null || apiKey == null) {
@@ -168,27 +619,105 @@ public class PushSDK {
             return;
         }
         
-        shouldReconnect = true;
+        whenReady(() -> {
+            if (remote != null) {
+                remote.call(RemotePushClient.CALL_CONNECT);
+                return;
+            }
+            context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit()
+                .putBoolean(KEY_CONNECT_REQUESTED, true)
+                .apply();
+            connectLocal();
+        });
+    }
+    
+    /**
+     * Восстановление соединения в перезапущенном процессе :push
+     * Система поднимает sticky-службу без процесса интерфейса, поэтому
+     * init() и connect() никто не вызовет - берём их из сохранённых настроек
+     */
+    void restoreConnection() {
+        whenReady(() -> {
+            if (remote != null) {
+                return;
+            }
+            SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+            if (!prefs.getBoolean(KEY_CONNECT_REQUESTED, false)) {
+                return;
+            }
+            if (serverUrl == null) {
+                String savedUrl = prefs.getString(KEY_SERVER_URL, null);
+                String savedKey = prefs.getString(KEY_API_KEY, null);
+                if (savedUrl == null || savedKey == null) {
+                    return;
+                }
+                applyConfig(savedUrl, savedKey);
+            }
+            createClients();
+            Log.d(TAG, "Соединение восстановлено после перезапуска службы");
+            connectLocal();
+        });
+    }
+    
+    private void connectLocal() {
+        // Повторный connect не открывает второй сокет - это решает connection
+        connection.reopen();
+        pollMode = false;
+        registerNetworkCallback();
         connectWebSocket();
+        
+        // Страховка на случай, когда процесс остановлен или соединение в фоне не держится
+        PollJobService.schedule(context);
+        if (!visibility.isForeground()) {
+            mainHandler.removeCallbacks(lowActivityCheck);
+            mainHandler.postDelayed(lowActivityCheck, BACKGROUND_GRACE_MS);
+        }
+        
+        // Отправляем запросы, оставшиеся с прошлого запуска
+        outbox.resume();
     }
     
     /**
      * Отключение от сервера
      */
     public void disconnect() {
-        shouldReconnect = false;
-        if (webSocket != null) {
-            webSocket.close(1000, "Disconnect requested");
-            webSocket = null;
-        }
-        isConnected = false;
+        whenReady(() -> {
+            if (remote != null) {
+                remote.call(RemotePushClient.CALL_DISCONNECT);
+                return;
+            }
+            context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit()
+                .putBoolean(KEY_CONNECT_REQUESTED, false)
+                .apply();
+            // Колбэки закрываемого сокета уже устарели и ничего не перезапустят
+            boolean wasOpen = connection.close();
+            pollMode = false;
+            mainHandler.removeCallbacks(lowActivityCheck);
+            PollJobService.cancel(context);
+            reconnectScheduler.cancel();
+            heartbeat.stop();
+            closeSocket("Disconnect requested");
+            if (wasOpen) {
+                notifyDisconnected();
+            }
+        });
     }
     
     /**
      * Регистрация устройства на сервере через REST API
+     * Запрос ставится в персистентную очередь и повторяется при сбоях сети
      */
     public void registerDevice(String userId, List<String> tags) {
-        executor.execute(() -> {
+        whenReady(() -> {
+            if (remote != null) {
+                Bundle args = new Bundle();
+                args.putString("userId", userId);
+                if (tags != null) {
+                    args.putStringArrayList("tags", new ArrayList<>(tags));
+                }
+                remote.call(RemotePushClient.CALL_REGISTER, args);
+                return;
+            }
             try {
                 JSONObject body = new JSONObject();
                 body.put("platform", "android");
@@ -201,34 +730,8 @@ public class PushSDK {
                     body.put("tags", new JSONArray(tags));
                 }
                 
-                Request request = new Request.Builder()
-                    .url(serverUrl + "/api/v1/devices/register")
-                    .addHeader("Content-Type", "application/json")
-                    .addHeader("X-API-Key", apiKey)
-                    .post(okhttp3.RequestBody.create(
-                        body.toString(),
-                        okhttp3.MediaType.parse("application/json")
-                    ))
-                    .build();
-                
-                try (Response response = client.newCall(request).execute()) {
-                    if (response.isSuccessful()) {
-                        String responseBody = response.body().string();
-                        JSONObject json = new JSONObject(responseBody);
-                        if (json.getBoolean("success")) {
-                            String newDeviceId = json.getJSONObject("data").getString("deviceId");
-                            deviceId = newDeviceId;
-                            
-                            SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-                            prefs.edit().putString(KEY_DEVICE_ID, deviceId).apply();
-                            
-                            Log.d(TAG, "Устройство зарегистрировано: " + deviceId);
-                        }
-                    } else {
-                        Log.e(TAG, "Ошибка регистрации: " + response.code());
-                    }
-                }
-            } catch (Exception e) {
+                outbox.enqueue(RestOutbox.OP_REGISTER, body);
+            } catch (JSONException e) {
                 Log.e(TAG, "Ошибка регистрации устройства", e);
                 notifyError("Ошибка регистрации: " + e.getMessage());
             }
@@ -237,29 +740,21 @@ public class PushSDK {
     
     /**
      * Установка тегов для устройства
+     * Если предыдущий вызов ещё не отправлен, он заменяется новым
      */
     public void setTags(List<String> tags) {
-        executor.execute(() -> {
+        whenReady(() -> {
+            if (remote != null) {
+                Bundle args = new Bundle();
+                args.putStringArrayList("tags", new ArrayList<>(tags));
+                remote.call(RemotePushClient.CALL_TAGS, args);
+                return;
+            }
             try {
                 JSONObject body = new JSONObject();
                 body.put("tags", new JSONArray(tags));
-                
-                Request request = new Request.Builder()
-                    .url(serverUrl + "/api/v1/devices/" + deviceId + "/tags")
-                    .addHeader("Content-Type", "application/json")
-                    .addHeader("X-API-Key", apiKey)
-                    .post(okhttp3.RequestBody.create(
-                        body.toString(),
-                        okhttp3.MediaType.parse("application/json")
-                    ))
-                    .build();
-                
-                try (Response response = client.newCall(request).execute()) {
-                    if (response.isSuccessful()) {
-                        Log.d(TAG, "Теги установлены");
-                    }
-                }
-            } catch (Exception e) {
+                outbox.enqueue(RestOutbox.OP_TAGS, body);
+            } catch (JSONException e) {
                 Log.e(TAG, "Ошибка установки тегов", e);
             }
         });
@@ -267,29 +762,21 @@ public class PushSDK {
     
     /**
      * Привязка к пользователю
+     * Если предыдущий вызов ещё не отправлен, он заменяется новым
      */
     public void setUserId(String userId) {
-        executor.execute(() -> {
+        whenReady(() -> {
+            if (remote != null) {
+                Bundle args = new Bundle();
+                args.putString("userId", userId);
+                remote.call(RemotePushClient.CALL_USER, args);
+                return;
+            }
             try {
                 JSONObject body = new JSONObject();
                 body.put("userId", userId);
-                
-                Request request = new Request.Builder()
-                    .url(serverUrl + "/api/v1/devices/" + deviceId + "/user")
-                    .addHeader("Content-Type", "application/json")
-                    .addHeader("X-API-Key", apiKey)
-                    .post(okhttp3.RequestBody.create(
-                        body.toString(),
-                        okhttp3.MediaType.parse("application/json")
-                    ))
-                    .build();
-                
-                try (Response response = client.newCall(request).execute()) {
-                    if (response.isSuccessful()) {
-                        Log.d(TAG, "Пользователь привязан: " + userId);
-                    }
-                }
-            } catch (Exception e) {
+                outbox.enqueue(RestOutbox.OP_USER, body);
+            } catch (JSONException e) {
                 Log.e(TAG, "Ошибка привязки пользователя", e);
             }
         });
@@ -299,6 +786,11 @@ public class PushSDK {
      * Получение ID устройства
      */
     public String getDeviceId() {
+        awaitReady();
+        if (remote != null) {
+            String remoteId = remote.getDeviceId();
+            return remoteId != null ? remoteId : deviceId;
+        }
         return deviceId;
     }
     
@@ -306,22 +798,38 @@ public class PushSDK {
      * Проверка подключения
      */
     public boolean isConnected() {
-        return isConnected;
+        RemotePushClient proxy = remote;
+        return proxy != null ? proxy.isConnected() : connection.isOpen();
     }
     
     // Приватные методы
     
-    private void connectWebSocket() {
+    /**
+     * Новый сокет, если нет открытого или открывающегося
+     * @return true, если начата попытка подключения
+     */
+    private boolean connectWebSocket() {
+        long generation = connection.beginConnect();
+        if (generation < 0) {
+            return false;
+        }
+        
         Request request = new Request.Builder()
             .url(wsUrl)
             .build();
         
-        webSocket = client.newWebSocket(request, new WebSocketListener() {
+        WebSocket socket = wsClient.newWebSocket(request, new WebSocketListener() {
             @Override
             public void onOpen(WebSocket webSocket, Response response) {
+                if (!connection.opened(generation)) {
+                    // Пока сокет открывался, вызвали disconnect или режим опроса
+                    webSocket.close(1000, "Stale connection");
+                    return;
+                }
                 Log.d(TAG, "WebSocket подключен");
-                isConnected = true;
-                reconnectAttempts = 0;
+                PushSDK.this.webSocket = webSocket;
+                reconnectScheduler.reset();
+                binaryFrames = false;
                 
                 // Регистрируемся на сервере
                 try {
@@ -329,30 +837,78 @@ public class PushSDK {
                     registerMsg.put("type", "register");
                     registerMsg.put("deviceId", deviceId);
                     registerMsg.put("token", token);
+                    // Предлагаем бинарный формат, JSON остаётся запасным
+                    registerMsg.put("encodings", new JSONArray().put(MsgPackCodec.ENCODING));
+                    // Версии словаря для сжатия маленьких фреймов
+                    registerMsg.put("dictionaries", new JSONArray().put(FrameDictionary.VERSION));
+                    // Пингует клиент - сервер не держит таймер на каждое соединение
+                    registerMsg.put("heartbeat", "client");
+                    // Шаблоны рассылок из кэша - сервер пришлёт только ссылки на них
+                    registerMsg.put("templates", templates.keys());
+                    // Дополнительные приложения получают уведомления через это же соединение
+                    JSONArray appList = apps.toFrame();
+                    if (appList.length() > 0) {
+                        registerMsg.put("apps", appList);
+                    }
+                    // Сервер дошлёт только сообщения после lastSeq
+                    if (session.getEpoch() != null) {
+                        registerMsg.put("epoch", session.getEpoch());
+                        registerMsg.put("lastSeq", session.getLastSeq());
+                    }
                     webSocket.send(registerMsg.toString());
                 } catch (JSONException e) {
                     Log.e(TAG, "Ошибка формирования сообщения регистрации", e);
                 }
                 
+                // Досылаем события и запросы, накопленные без соединения
+                eventBatcher.flush();
+                outbox.resume();
+                
                 notifyConnected();
             }
             
             @Override
             public void onMessage(WebSocket webSocket, String text) {
+                if (!connection.isCurrent(generation)) {
+                    return;
+                }
+                // Для метрик длина в символах - для ASCII совпадает с байтами
+                metrics.count(PushMetrics.BYTES_IN, text.length());
+                handleTextFrame(text, System.nanoTime());
+            }
+            
+            @Override
+            public void onMessage(WebSocket webSocket, ByteString bytes) {
+                if (!connection.isCurrent(generation)) {
+                    return;
+                }
+                long receivedNanos = System.nanoTime();
+                metrics.count(PushMetrics.BYTES_IN, bytes.size());
                 try {
-                    JSONObject message = new JSONObject(text);
-                    String type = message.optString("type");
+                    byte[] raw = bytes.toByteArray();
+                    
+                    // Маленькие фреймы сервер сжимает предустановленным словарём
+                    if (FrameDictionary.isCompressed(raw)) {
+                        raw = FrameDictionary.inflate(raw);
+                        if (!binaryFrames) {
+                            handleTextFrame(new String(raw, StandardCharsets.UTF_8), receivedNanos);
+                            return;
+                        }
+                    }
                     
-                    switch (type) {
-                        case "notification":
-                            handleNotification(message);
-                            break;
-                        case "registered":
-                            Log.d(TAG, "Устройство зарегистрировано через WebSocket");
-                            break;
+                    FrameDecoder.Frame frame = MsgPackCodec.decodeFrame(raw);
+                    metrics.count(PushMetrics.FRAMES_IN, 1);
+                    if (frame.notification != null) {
+                        metrics.recordSince(PushMetrics.SPAN_PARSE, receivedNanos);
+                        frame.notification.receivedNanos = receivedNanos;
+                        handleNotification(frame.notification);
+                        return;
                     }
-                } catch (JSONException e) {
-                    Log.e(TAG, "Ошибка парсинга сообщения", e);
+                    if (frame.type != null) {
+                        handleControlFrame(frame.type, MsgPackCodec.decodeObject(raw));
+                    }
+                } catch (JSONException | DataFormatException e) {
+                    Log.e(TAG, "Ошибка парсинга бинарного сообщения", e);
                 }
             }
             
@@ -364,142 +920,869 @@ public class PushSDK {
             @Override
             public void onClosed(WebSocket webSocket, int code, String reason) {
                 Log.d(TAG, "WebSocket закрыт: " + reason);
-                isConnected = false;
+                if (!connection.lost(generation)) {
+                    return;
+                }
+                releaseSocket(webSocket);
+                heartbeat.stop();
                 notifyDisconnected();
                 
-                if (shouldReconnect) {
-                    scheduleReconnect();
+                if (REASON_REPLACED.equals(reason)) {
+                    // Сервер принял другое соединение этого устройства - не спорим с ним,
+                    // но и не остаёмся без соединения, если то потом оборвётся
+                    Log.d(TAG, "Соединение заменено другим, переподключение отложено");
+                    if (!pollMode) {
+                        reconnectScheduler.scheduleAfter(REPLACED_RECONNECT_MS);
+                    }
+                    return;
                 }
+                
+                // Сервер при перезапуске указывает, когда можно вернуться
+                reconnectScheduler.setRetryAfter(ReconnectScheduler.parseRetryAfter(reason));
+                scheduleReconnect();
             }
             
             @Override
             public void onFailure(WebSocket webSocket, Throwable t, Response response) {
                 Log.e(TAG, "WebSocket ошибка", t);
-                isConnected = false;
+                if (!connection.lost(generation)) {
+                    return;
+                }
+                releaseSocket(webSocket);
+                heartbeat.onConnectionLost();
                 notifyError("Ошибка соединения: " + t.getMessage());
                 notifyDisconnected();
                 
-                if (shouldReconnect) {
-                    scheduleReconnect();
+                if (response != null) {
+                    reconnectScheduler.setRetryAfter(
+                        ReconnectScheduler.parseRetryAfter(response.header("Retry-After")));
                 }
+                
+                scheduleReconnect();
             }
         });
-    }
-    
-    private void scheduleReconnect() {
-        if (reconnectAttempts >= MAX_RECONNECT_ATTEMPTS) {
-            Log.e(TAG, "Превышено максимальное количество попыток переподключения");
-            return;
-        }
-        
-        reconnectAttempts++;
-        long delay = RECONNECT_DELAY_MS * reconnectAttempts;
-        
-        Log.d(TAG, "Переподключение через " + delay + "мс (попытка " + reconnectAttempts + ")");
         
-        mainHandler.postDelayed(() -> {
-            if (shouldReconnect && !isConnected) {
-                connectWebSocket();
-            }
-        }, delay);
+        if (connection.isCurrent(generation)) {
+            webSocket = socket;
+        } else {
+            socket.cancel();
+        }
+        return true;
     }
     
-    private void handleNotification(JSONObject message) {
-        try {
-            PushNotification notification = new PushNotification();
-            notification.id = message.getString("id");
-            notification.title = message.optString("title", "");
-            notification.body = message.optString("body", "");
-            notification.icon = message.optString("icon", null);
-            notification.image = message.optString("image", null);
-            notification.url = message.optString("url", null);
-            notification.data = message.optJSONObject("data");
-            notification.channelId = message.optString("channelId", defaultChannelId);
-            notification.timestamp = System.currentTimeMillis();
-            
-            // Отправляем подтверждение
-            sendAck(notification.id);
-            
-            // Показываем уведомление
-            showNotification(notification);
-            
-            // Уведомляем слушателя
-            notifyNotificationReceived(notification);
-            
-        } catch (JSONException e) {
-            Log.e(TAG, "Ошибка обработки уведомления", e);
+    /**
+     * Закрытие текущего сокета, его колбэки к этому моменту уже устарели
+     */
+    private void closeSocket(String reason) {
+        WebSocket socket = webSocket;
+        webSocket = null;
+        if (socket != null) {
+            socket.close(1000, reason);
         }
     }
     
-    private void sendAck(String notificationId) {
-        if (webSocket != null && isConnected) {
-            try {
-                JSONObject ack = new JSONObject();
-                ack.put("type", "ack");
-                ack.put("notificationId", notificationId);
-                webSocket.send(ack.toString());
-            } catch (JSONException e) {
-                Log.e(TAG, "Ошибка отправки ACK", e);
-            }
+    /**
+     * Сокет потерян - забываем его, если его ещё не сменил новый
+     */
+    private void releaseSocket(WebSocket socket) {
+        if (webSocket == socket) {
+            webSocket = null;
         }
     }
     
-    private void showNotification(PushNotification notification) {
-        int notificationId = notification.id.hashCode();
+    /**
+     * Выполнение REST-запроса из очереди
+     * @return true, если запрос завершён и его не нужно повторять
+     */
+    private boolean executeRestCall(String op, JSONObject body) throws Exception {
+        if (client == null) {
+            // SDK ещё не инициализирован - повторим после init() и connect()
+            return false;
+        }
         
-        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, notification.channelId)
-            .setSmallIcon(android.R.drawable.ic_dialog_info) // Замените на свою иконку
-            .setContentTitle(notification.title)
+        String key = apiKey;
+        String path;
+        switch (op) {
+            case RestOutbox.OP_REGISTER:
+                path = "/api/v1/devices/register";
+                break;
+            case RestOutbox.OP_TAGS:
+                path = "/api/v1/devices/" + deviceId + "/tags";
+                break;
+            case RestOutbox.OP_USER:
+                path = "/api/v1/devices/" + deviceId + "/user";
+                break;
+            case OP_METRICS:
+                path = "/api/v1/devices/" + deviceId + "/metrics";
+                break;
+            default:
+                if (!op.startsWith(OP_APP_PREFIX)) {
+                    return true;
+                }
+                // Устройство дополнительного приложения регистрируется его ключом
+                key = op.substring(OP_APP_PREFIX.length());
+                path = "/api/v1/devices/register";
+                break;
+        }
+        
+        Request request = new Request.Builder()
+            .url(serverUrl + path)
+            .addHeader("Content-Type", "application/json")
+            .addHeader("X-API-Key", key)
+            .post(okhttp3.RequestBody.create(
+                body.toString(),
+                okhttp3.MediaType.parse("application/json")
+            ))
+            .build();
+        
+        try (Response response = client.newCall(request).execute()) {
+            if (response.isSuccessful()) {
+                if (RestOutbox.OP_REGISTER.equals(op)) {
+                    String responseBody = response.body().string();
+                    JSONObject json = new JSONObject(responseBody);
+                    if (json.getBoolean("success")) {
+                        deviceId = json.getJSONObject("data").getString("deviceId");
+                        
+                        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+                        prefs.edit().putString(KEY_DEVICE_ID, deviceId).apply();
+                        
+                        Log.d(TAG, "Устройство зарегистрировано: " + deviceId);
+                    }
+                } else if (op.startsWith(OP_APP_PREFIX)) {
+                    JSONObject json = new JSONObject(response.body().string());
+                    if (json.getBoolean("success")) {
+                        String appDeviceId = json.getJSONObject("data").getString("deviceId");
+                        apps.setDeviceId(key, appDeviceId);
+                        Log.d(TAG, "Приложение зарегистрировано: " + appDeviceId);
+                        attachApps();
+                    }
+                } else {
+                    Log.d(TAG, "Запрос выполнен: " + op);
+                }
+                return true;
+            }
+            
+            if (response.code() >= 400 && response.code() < 500 && response.code() != 429) {
+                // Ошибка клиента - повтор не поможет
+                Log.e(TAG, "Запрос " + op + " отклонён: " + response.code());
+                if (RestOutbox.OP_REGISTER.equals(op) || op.startsWith(OP_APP_PREFIX)) {
+                    notifyError("Ошибка регистрации: " + response.code());
+                }
+                return true;
+            }
+            
+            Log.e(TAG, "Ошибка запроса " + op + ": " + response.code());
+            return false;
+        }
+    }
+    
+    private void scheduleReconnect() {
+        if (pollMode) {
+            return;
+        }
+        // В фоне соединение не восстанавливается - дальше уведомления забирает опрос
+        if (!visibility.isForeground() && reconnectScheduler.getAttempts() >= POLL_FALLBACK_ATTEMPTS) {
+            enterPollMode("нет соединения в фоне");
+            return;
+        }
+        reconnectScheduler.schedule();
+    }
+    
+    /**
+     * Переход с WebSocket на периодический опрос
+     * Сервер не держит соединение и его буферы для неактивного устройства
+     */
+    private void enterPollMode(String reason) {
+        if (pollMode || connection.isClosed() || serverUrl == null) {
+            return;
+        }
+        Log.d(TAG, "Режим опроса: " + reason);
+        pollMode = true;
+        reconnectScheduler.cancel();
+        heartbeat.stop();
+        boolean wasOpen = connection.idle();
+        closeSocket("Poll mode");
+        if (wasOpen) {
+            notifyDisconnected();
+        }
+        PollJobService.schedule(context);
+    }
+    
+    /**
+     * Приложение на экране - сразу возвращаемся к WebSocket
+     */
+    private void leavePollMode() {
+        mainHandler.removeCallbacks(lowActivityCheck);
+        boolean wasPolling = pollMode;
+        pollMode = false;
+        if (connection.isDown() && wsClient != null) {
+            if (wasPolling) {
+                Log.d(TAG, "Приложение на экране, возвращаемся к WebSocket");
+            }
+            reconnectScheduler.resumeNow();
+        }
+    }
+    
+    /**
+     * Давно не было уведомлений - в фоне достаточно опроса
+     */
+    private void checkLowActivity() {
+        if (visibility.isForeground()) {
+            return;
+        }
+        // Пустой inbox (новая установка, очистка по сроку) - активность неизвестна, а не нулевая
+        long last = Math.max(lastActivityAt, inbox.lastReceivedAt());
+        if (last > 0 && System.currentTimeMillis() - last > LOW_ACTIVITY_MS) {
+            enterPollMode("нет уведомлений " + LOW_ACTIVITY_MS / (60 * 60 * 1000) + "ч");
+        }
+    }
+    
+    private void recordActivity(long time) {
+        if (time - lastActivityAt < ACTIVITY_PERSIST_MS) {
+            return;
+        }
+        lastActivityAt = time;
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+            .edit()
+            .putLong(KEY_LAST_ACTIVITY, time)
+            .apply();
+    }
+    
+    /**
+     * Фоновый опрос (PollJobService)
+     * Все накопленные уведомления забираются одним long-poll запросом
+     */
+    void poll(PollCallback callback) {
+        whenReady(() -> {
+            if (remote != null) {
+                // Задача завершится по ответу службы, когда опрос в :push закончится
+                remote.poll(callback);
+                return;
+            }
+            lanes.api(() -> {
+                boolean success;
+                try {
+                    success = pollPending();
+                } catch (Exception e) {
+                    Log.e(TAG, "Ошибка опроса", e);
+                    success = false;
+                }
+                callback.onComplete(success);
+            });
+        });
+    }
+    
+    /**
+     * @return true, если опрос завершён и его не нужно повторять
+     */
+    private boolean pollPending() throws Exception {
+        if (connection.isOpen()) {
+            // Уведомления приходят через WebSocket
+            return true;
+        }
+        if (serverUrl == null) {
+            SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+            String savedUrl = prefs.getString(KEY_SERVER_URL, null);
+            String savedKey = prefs.getString(KEY_API_KEY, null);
+            if (savedUrl == null || savedKey == null) {
+                // init() ещё не вызывался ни разу
+                return true;
+            }
+            applyConfig(savedUrl, savedKey);
+        }
+        createClients();
+        
+        boolean done = pollDevice(deviceId, apiKey, POLL_WAIT_S, null);
+        // Дополнительные приложения - без ожидания, их очередь уже накоплена
+        for (AppRegistry.App app : apps.all()) {
+            if (app.deviceId != null) {
+                done &= pollDevice(app.deviceId, app.apiKey, 0, app.deviceId);
+            }
+        }
+        return done;
+    }
+    
+    /**
+     * @param appDevice устройство дополнительного приложения или null для основного
+     */
+    private boolean pollDevice(String device, String key, int waitS, String appDevice) throws Exception {
+        Request request = new Request.Builder()
+            // ack=1: сервер держит сообщения, пока мы их не подтвердим
+            .url(serverUrl + "/api/v1/devices/" + device + "/poll?ack=1&wait=" + waitS)
+            .addHeader("X-API-Key", key)
+            .get()
+            .build();
+        
+        try (Response response = client.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                Log.e(TAG, "Ошибка опроса: " + response.code());
+                // Ошибка клиента - повтор не поможет
+                return response.code() >= 400 && response.code() < 500 && response.code() != 429;
+            }
+            
+            JSONObject json = new JSONObject(response.body().string());
+            serverClock.sync(json.getJSONObject("data").optLong("serverTime", 0));
+            JSONArray items = json.getJSONObject("data").optJSONArray("notifications");
+            int count = items != null ? items.length() : 0;
+            JSONArray acked = new JSONArray();
+            JSONArray expired = new JSONArray();
+            intake.beginBacklog();
+            for (int i = 0; i < count; i++) {
+                PushNotification notification = fromPoll(items.getJSONObject(i));
+                notification.device = appDevice;
+                handleNotification(notification);
+                if (notification.id == null) {
+                    continue;
+                }
+                if (notification.expiresAt > 0 && serverClock.now() > notification.expiresAt) {
+                    expired.put(notification.id);
+                } else {
+                    acked.put(notification.id);
+                }
+            }
+            Log.d(TAG, "Опрос: получено уведомлений " + count);
+            if (count > 0) {
+                ackPolled(device, key, acked, expired);
+            }
+            return true;
+        }
+    }
+    
+    /**
+     * Подтверждение опроса - без него сервер отдаст сообщения снова,
+     * повтор отсеет seenIndex
+     */
+    private void ackPolled(String device, String key, JSONArray acked, JSONArray expired) throws JSONException {
+        JSONObject body = new JSONObject()
+            .put("ids", acked)
+            .put("expired", expired);
+        Request request = new Request.Builder()
+            .url(serverUrl + "/api/v1/devices/" + device + "/ack")
+            .addHeader("Content-Type", "application/json")
+            .addHeader("X-API-Key", key)
+            .post(okhttp3.RequestBody.create(
+                body.toString(),
+                okhttp3.MediaType.parse("application/json")
+            ))
+            .build();
+        
+        try (Response response = client.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                Log.e(TAG, "Ошибка подтверждения опроса: " + response.code());
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Ошибка подтверждения опроса", e);
+        }
+    }
+    
+    private static PushNotification fromPoll(JSONObject item) {
+        PushNotification notification = new PushNotification();
+        notification.id = optNullable(item, "notificationId");
+        notification.title = optNullable(item, "title");
+        notification.body = optNullable(item, "body");
+        notification.icon = optNullable(item, "icon");
+        notification.image = optNullable(item, "image");
+        notification.url = optNullable(item, "url");
+        notification.channelId = optNullable(item, "channelId");
+        notification.group = optNullable(item, "group");
+        notification.priority = optNullable(item, "priority");
+        notification.expiresAt = item.optLong("expiresAt", 0);
+        JSONObject data = item.optJSONObject("data");
+        notification.dataJson = data != null ? data.toString() : null;
+        notification.timestamp = FrameDecoder.parseTimestamp(optNullable(item, "timestamp"));
+        notification.receivedNanos = System.nanoTime();
+        return notification;
+    }
+    
+    private static String optNullable(JSONObject object, String key) {
+        return object.isNull(key) ? null : object.optString(key);
+    }
+    
+    /**
+     * Переподключение сразу при появлении сети, без ожидания таймера
+     */
+    private void registerNetworkCallback() {
+        if (networkCallbackRegistered || Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+            return;
+        }
+        ConnectivityManager connectivity =
+            (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivity == null) {
+            return;
+        }
+        
+        try {
+            connectivity.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(Network network) {
+                    if (connection.isDown() && !pollMode) {
+                        Log.d(TAG, "Сеть доступна, переподключаемся");
+                        reconnectScheduler.resumeNow();
+                    }
+                    outbox.resume();
+                }
+            });
+            networkCallbackRegistered = true;
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Не удалось подписаться на изменения сети", e);
+        }
+    }
+    
+    private void handleTextFrame(String text, long receivedNanos) {
+        try {
+            // Уведомления читаются потоковым декодером без org.json
+            FrameDecoder.Frame frame = FrameDecoder.decode(text);
+            metrics.count(PushMetrics.FRAMES_IN, 1);
+            if (frame.notification != null) {
+                metrics.recordSince(PushMetrics.SPAN_PARSE, receivedNanos);
+                frame.notification.receivedNanos = receivedNanos;
+                handleNotification(frame.notification);
+                return;
+            }
+            if (frame.type != null) {
+                handleControlFrame(frame.type, new JSONObject(text));
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "Ошибка парсинга сообщения", e);
+        }
+    }
+    
+    /**
+     * Обработка служебных фреймов (всё, кроме уведомлений)
+     */
+    private void handleControlFrame(String type, JSONObject message) {
+        switch (type) {
+            case "registered":
+                binaryFrames = MsgPackCodec.ENCODING.equals(message.optString("encoding"));
+                boolean dictionary = message.optInt("dictionary", 0) == FrameDictionary.VERSION;
+                session.onRegistered(message.optString("epoch", null), message.optLong("minSeq", 0));
+                serverClock.sync(FrameDecoder.parseTimestamp(message.optString("timestamp", null)));
+                // Уведомлений ещё не было - отсчёт низкой активности идёт от первого подключения
+                if (lastActivityAt == 0) {
+                    recordActivity(System.currentTimeMillis());
+                }
+                // Следом сервер досылает накопленное - показываем его по приоритету
+                intake.beginBacklog();
+                // Старый сервер пингует сам - тогда клиентский heartbeat не нужен
+                if ("client".equals(message.optString("heartbeat"))) {
+                    heartbeat.start(message.optLong("idleTimeout", 0) * 1000);
+                }
+                Log.d(TAG, "Устройство зарегистрировано через WebSocket"
+                    + (binaryFrames ? " (MessagePack)" : "")
+                    + (dictionary ? " (словарь v" + FrameDictionary.VERSION + ")" : ""));
+                break;
+            case "prefetch":
+                handlePrefetch(message);
+                break;
+            case "pong":
+                heartbeat.onPong();
+                break;
+            case "acked":
+                // Ответ на ack_batch с меткой отправки - круговая задержка ACK
+                long sentAt = message.optLong("sentAt", 0);
+                if (sentAt > 0) {
+                    metrics.record(PushMetrics.SPAN_ACK, (SystemClock.elapsedRealtime() - sentAt) * 1000);
+                }
+                break;
+        }
+    }
+    
+    private void handleNotification(PushNotification notification) {
+        if (notification.id == null) {
+            Log.e(TAG, "Ошибка обработки уведомления: нет id");
+            return;
+        }
+        if (notification.templateId != null) {
+            try {
+                if (!templates.apply(notification)) {
+                    fetchTemplate(notification);
+                    return;
+                }
+            } catch (JSONException e) {
+                Log.e(TAG, "Ошибка шаблона уведомления " + notification.id, e);
+                return;
+            }
+        }
+        // Уведомление другого приложения в общем соединении - его канал и слушатель
+        AppRegistry.App app = apps.byDevice(notification.device);
+        if (app != null) {
+            notification.app = app.apiKey;
+            if (app.channelId != null && (notification.channelId == null
+                    || SERVER_DEFAULT_CHANNEL.equals(notification.channelId))) {
+                notification.channelId = app.channelId;
+            }
+        }
+        if (notification.title == null) {
+            notification.title = "";
+        }
+        if (notification.body == null) {
+            notification.body = "";
+        }
+        if (notification.channelId == null) {
+            notification.channelId = defaultChannelId;
+        }
+        notification.priority = IntakeQueue.normalize(notification.priority);
+        // timestamp сервера не перезаписываем - по нему считается задержка доставки
+        notification.receivedAt = System.currentTimeMillis();
+        // timestamp и expiresAt - часы сервера, часы телефона могут спешить
+        long serverNow = serverClock.now();
+        long sentAt = notification.timestamp > 0 ? notification.timestamp : serverNow;
+        if (notification.timestamp > 0) {
+            metrics.record(PushMetrics.SPAN_DELIVERY, (serverNow - notification.timestamp) * 1000);
+        } else {
+            notification.timestamp = notification.receivedAt;
+        }
+        if (notification.expiresAt == 0 && notification.ttl > 0) {
+            notification.expiresAt = sentAt + notification.ttl * 1000;
+        }
+        metrics.count(PushMetrics.NOTIFICATIONS, 1);
+        
+        // Повтор сервера или переотправка после переподключения
+        boolean duplicate = !seenIndex.markSeen(notification.id);
+        // Устаревшее сообщение (например, досланное после долгого офлайна) не показываем
+        boolean expired = notification.expiresAt > 0 && serverNow > notification.expiresAt;
+        
+        // Подтверждение отправляем и для дубликатов -
+        // иначе сервер будет досылать их снова
+        if (expired && !duplicate) {
+            eventBatcher.addExpired(notification.id);
+        } else {
+            sendAck(notification.id);
+        }
+        // seq других приложений считается для их устройств, сессия - только основного
+        if (notification.seq > 0 && notification.device == null) {
+            session.onAcked(notification.seq);
+        }
+        
+        if (duplicate) {
+            metrics.count(PushMetrics.DUPLICATES, 1);
+            Log.d(TAG, "Повторное уведомление пропущено: " + notification.id);
+            return;
+        }
+        recordActivity(notification.receivedAt);
+        if (expired) {
+            metrics.count(PushMetrics.EXPIRED, 1);
+            Log.d(TAG, "Просроченное уведомление пропущено: " + notification.id);
+            return;
+        }
+        
+        inbox.add(notification);
+        
+        // Показ идёт вне потока чтения сокета, пачка после переподключения -
+        // от высокого приоритета к низкому
+        intake.offer(notification);
+    }
+    
+    /**
+     * Показ уведомления из очереди приоритетов
+     */
+    private void deliver(PushNotification notification) {
+        // При всплеске уведомление войдёт в сводку группы
+        renderer.submit(notification);
+        
+        // Уведомляем слушателя
+        notifyNotificationReceived(notification);
+    }
+    
+    /**
+     * Предзагрузка медиа запланированной кампании
+     * Только в безлимитной сети, в пределах бюджета диска
+     */
+    private void handlePrefetch(JSONObject message) {
+        JSONArray urls = message.optJSONArray("urls");
+        if (urls == null || urls.length() == 0) {
+            return;
+        }
+        
+        ConnectivityManager connectivity =
+            (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivity == null || connectivity.isActiveNetworkMetered()) {
+            Log.d(TAG, "Лимитная сеть, предзагрузка пропущена");
+            return;
+        }
+        
+        for (int i = 0; i < urls.length(); i++) {
+            String url = urls.optString(i);
+            if (url == null || url.isEmpty()) {
+                continue;
+            }
+            lanes.media(() -> {
+                if (imageCache.prefetch(url)) {
+                    Log.d(TAG, "Изображение предзагружено: " + url);
+                }
+            });
+        }
+    }
+    
+    /**
+     * Шаблона нет в кэше (вытеснен) - догружаем по REST и обрабатываем уведомление
+     * Без ACK сервер дошлёт уведомление снова, если загрузка не удалась
+     */
+    private void fetchTemplate(PushNotification notification) {
+        lanes.api(() -> {
+            // Шаблон доступен только приложению-отправителю - его устройством и ключом
+            String device = deviceId;
+            String key = apiKey;
+            if (notification.device != null) {
+                AppRegistry.App app = apps.byDevice(notification.device);
+                if (app == null) {
+                    Log.e(TAG, "Шаблон " + notification.templateId + " для неизвестного приложения");
+                    return;
+                }
+                device = app.deviceId;
+                key = app.apiKey;
+            }
+            Request request = new Request.Builder()
+                .url(serverUrl + "/api/v1/devices/" + device + "/templates/" + notification.templateId)
+                .addHeader("X-API-Key", key)
+                .build();
+            
+            try (Response response = client.newCall(request).execute()) {
+                if (!response.isSuccessful()) {
+                    Log.e(TAG, "Шаблон " + notification.templateId + " недоступен: " + response.code());
+                    return;
+                }
+                JSONObject data = new JSONObject(response.body().string()).getJSONObject("data");
+                templates.put(TemplateCache.parse(notification.templateId, data.optLong("version"), data));
+                if (!templates.apply(notification)) {
+                    // Кампанию изменили после отправки - версия уже другая
+                    Log.e(TAG, "Версия шаблона " + notification.templateId + " не совпадает");
+                    return;
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Ошибка загрузки шаблона", e);
+                return;
+            }
+            handleNotification(notification);
+        });
+    }
+    
+    private void registerApp(AppRegistry.App app) {
+        try {
+            JSONObject body = new JSONObject();
+            body.put("platform", "android");
+            body.put("token", app.token);
+            body.put("deviceModel", Build.MODEL);
+            body.put("osVersion", Build.VERSION.RELEASE);
+            outbox.enqueue(OP_APP_PREFIX + app.apiKey, body);
+        } catch (JSONException e) {
+            Log.e(TAG, "Ошибка регистрации приложения", e);
+        }
+    }
+    
+    /**
+     * Подключение зарегистрированных приложений к уже открытому соединению
+     * Без соединения они уйдут в следующем фрейме register
+     */
+    private void attachApps() {
+        try {
+            JSONArray list = apps.toFrame();
+            if (list.length() > 0) {
+                sendFrame(new JSONObject().put("type", "apps").put("apps", list));
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "Ошибка формирования списка приложений", e);
+        }
+    }
+    
+    private void sendAck(String notificationId) {
+        eventBatcher.addAck(notificationId);
+    }
+    
+    /**
+     * Отправка фрейма в согласованном с сервером формате
+     */
+    private boolean sendFrame(JSONObject frame) {
+        WebSocket socket = webSocket;
+        if (socket == null || !connection.isOpen()) {
+            return false;
+        }
+        if (binaryFrames) {
+            try {
+                byte[] bytes = MsgPackCodec.encode(frame);
+                metrics.count(PushMetrics.BYTES_OUT, bytes.length);
+                return socket.send(ByteString.of(bytes));
+            } catch (JSONException e) {
+                Log.e(TAG, "Ошибка кодирования MessagePack", e);
+                return false;
+            }
+        }
+        String text = frame.toString();
+        metrics.count(PushMetrics.BYTES_OUT, text.length());
+        return socket.send(text);
+    }
+    
+    /**
+     * Показ одиночного уведомления
+     * Не private: сборку уведомления замеряют бенчмарки (benchmarks/android-sdk)
+     */
+    void showNotification(PushNotification notification, String group) {
+        int notificationId = seenIndex.notificationId(notification.id);
+        
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, systemChannel(notification))
+            .setSmallIcon(android.R.drawable.ic_dialog_info) // Замените на свою иконку
+            .setContentTitle(notification.title)
             .setContentText(notification.body)
-            .setPriority(NotificationCompat.PRIORITY_HIGH)
+            .setPriority(compatPriority(notification.priority))
+            .setGroup(group)
+            .setAutoCancel(true);
+        
+        builder.setContentIntent(clickIntent(notification, notificationId));
+        
+        // Текст показываем сразу, не дожидаясь изображения
+        notificationManager.notify(notificationId, builder.build());
+        metrics.recordSince(PushMetrics.SPAN_NOTIFY, notification.receivedNanos);
+        
+        // Изображение загружаем отдельно и заменяем уведомление на BigPicture
+        if (notification.image != null && !notification.image.isEmpty()) {
+            lanes.media(() -> {
+                long start = System.nanoTime();
+                Bitmap bitmap = loadBitmap(notification.image);
+                metrics.recordSince(PushMetrics.SPAN_IMAGE, start);
+                if (bitmap == null) {
+                    return;
+                }
+                lanes.display(() -> {
+                    // Замена - тоже вызов notify, при всплеске остаётся текстовая версия
+                    if (!renderer.tryAcquire()) {
+                        return;
+                    }
+                    builder.setStyle(new NotificationCompat.BigPictureStyle()
+                        .bigPicture(bitmap)
+                        .bigLargeIcon((Bitmap) null))
+                        .setOnlyAlertOnce(true); // Без повторного звука
+                    notificationManager.notify(notificationId, builder.build());
+                });
+            });
+        }
+    }
+    
+    /**
+     * Сводка группы: последние строки и общее число уведомлений
+     * Клик по сводке ведёт на последнее уведомление
+     */
+    void showGroupSummary(String group, List<PushNotification> recent, int total) {
+        PushNotification latest = recent.get(recent.size() - 1);
+        int notificationId = seenIndex.notificationId("group:" + group);
+        
+        NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle()
+            .setBigContentTitle(latest.title)
+            .setSummaryText("Новых уведомлений: " + total);
+        for (int i = recent.size() - 1; i >= 0; i--) {
+            PushNotification item = recent.get(i);
+            style.addLine(item.title + " " + item.body);
+        }
+        
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, systemChannel(latest))
+            .setSmallIcon(android.R.drawable.ic_dialog_info) // Замените на свою иконку
+            .setContentTitle(latest.title)
+            .setContentText("Новых уведомлений: " + total)
+            .setPriority(compatPriority(latest.priority))
+            .setStyle(style)
+            .setGroup(group)
+            .setGroupSummary(true)
+            .setOnlyAlertOnce(true)
             .setAutoCancel(true);
         
-        // Intent при клике
+        builder.setContentIntent(clickIntent(latest, notificationId));
+        notificationManager.notify(notificationId, builder.build());
+        metrics.recordSince(PushMetrics.SPAN_NOTIFY, latest.receivedNanos);
+    }
+    
+    /**
+     * Канал Android для показа
+     * Если приложение само создало канал с id канала уведомления - он,
+     * иначе канал SDK, соответствующий приоритету. Уведомление без канала
+     * получает id канала SDK (defaultChannelId) - он существует всегда,
+     * но выбирается по приоритету
+     */
+    private String systemChannel(PushNotification notification) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && notification.channelId != null
+                && !isSdkChannel(notification.channelId)
+                && notificationManager.getNotificationChannel(notification.channelId) != null) {
+            return notification.channelId;
+        }
+        if (IntakeQueue.PRIORITY_LOW.equals(notification.priority)) {
+            return lowChannelId;
+        }
+        if (IntakeQueue.PRIORITY_NORMAL.equals(notification.priority)) {
+            return normalChannelId;
+        }
+        return defaultChannelId;
+    }
+    
+    private boolean isSdkChannel(String channelId) {
+        return channelId.equals(defaultChannelId) || channelId.equals(normalChannelId)
+            || channelId.equals(lowChannelId);
+    }
+    
+    /**
+     * Приоритет для Android 7.1 и ниже, где нет каналов
+     */
+    private static int compatPriority(String priority) {
+        if (IntakeQueue.PRIORITY_LOW.equals(priority)) {
+            return NotificationCompat.PRIORITY_LOW;
+        }
+        if (IntakeQueue.PRIORITY_NORMAL.equals(priority)) {
+            return NotificationCompat.PRIORITY_DEFAULT;
+        }
+        return NotificationCompat.PRIORITY_HIGH;
+    }
+    
+    private PendingIntent clickIntent(PushNotification notification, int requestCode) {
         Intent intent = new Intent(context, NotificationClickReceiver.class);
         intent.putExtra("notification_id", notification.id);
         intent.putExtra("url", notification.url);
-        if (notification.data != null) {
-            intent.putExtra("data", notification.data.toString());
+        if (notification.app != null) {
+            intent.putExtra("app", notification.app);
+        }
+        String data = notification.getDataString();
+        if (data != null) {
+            intent.putExtra("data", data);
         }
         
-        PendingIntent pendingIntent = PendingIntent.getBroadcast(
+        return PendingIntent.getBroadcast(
             context, 
-            notificationId, 
+            requestCode, 
             intent,
             PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
         );
-        builder.setContentIntent(pendingIntent);
-        
-        // Загрузка изображения (если есть)
-        if (notification.image != null && !notification.image.isEmpty()) {
-            executor.execute(() -> {
-                Bitmap bitmap = loadBitmap(notification.image);
-                if (bitmap != null) {
-                    builder.setStyle(new NotificationCompat.BigPictureStyle()
-                        .bigPicture(bitmap)
-                        .bigLargeIcon((Bitmap) null));
-                    
-                    mainHandler.post(() -> {
-                        notificationManager.notify(notificationId, builder.build());
-                    });
+    }
+    
+    /**
+     * Периодическая выгрузка метрик (без гарантии доставки, в очередь не ставится)
+     */
+    private void exportMetrics() {
+        if (!metrics.isEnabled()) {
+            return;
+        }
+        MetricsListener target = metricsListener;
+        whenReady(() -> lanes.api(() -> {
+            try {
+                Map<String, Integer> queues = new HashMap<>();
+                queues.put("outbox", outbox.size());
+                queues.put("events", eventBatcher.size());
+                queues.put("display", lanes.displayBacklog());
+                queues.put("media", lanes.mediaBacklog());
+                queues.put("intake", intake.size());
+                JSONObject batch = metrics.snapshot(queues);
+                
+                if (target != null) {
+                    mainHandler.post(() -> target.onMetrics(batch));
                 } else {
-                    mainHandler.post(() -> {
-                        notificationManager.notify(notificationId, builder.build());
-                    });
+                    executeRestCall(OP_METRICS, batch);
                 }
-            });
-        } else {
-            notificationManager.notify(notificationId, builder.build());
-        }
+            } catch (Exception e) {
+                Log.e(TAG, "Ошибка выгрузки метрик", e);
+            }
+        }));
+        mainHandler.postDelayed(metricsExport, metricsIntervalMs);
     }
     
     private Bitmap loadBitmap(String url) {
+        // Память -> диск -> сеть, с уменьшением до размера уведомления
         try {
-            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
-            connection.setDoInput(true);
-            connection.connect();
-            InputStream input = connection.getInputStream();
-            return BitmapFactory.decodeStream(input);
+            return imageCache.get(url);
         } catch (Exception e) {
             Log.e(TAG, "Ошибка загрузки изображения", e);
             return null;
@@ -516,63 +1799,269 @@ public class PushSDK {
             channel.setDescription("Канал для push-уведомлений");
             channel.enableVibration(true);
             notificationManager.createNotificationChannel(channel);
+            
+            NotificationChannel normal = new NotificationChannel(
+                normalChannelId,
+                "Push уведомления (обычные)",
+                NotificationManager.IMPORTANCE_DEFAULT
+            );
+            normal.setDescription("Уведомления обычного приоритета");
+            notificationManager.createNotificationChannel(normal);
+            
+            NotificationChannel low = new NotificationChannel(
+                lowChannelId,
+                "Push уведомления (без звука)",
+                NotificationManager.IMPORTANCE_LOW
+            );
+            low.setDescription("Уведомления низкого приоритета");
+            notificationManager.createNotificationChannel(low);
         }
     }
     
+    /**
+     * Канал дополнительного приложения
+     */
+    private void createAppChannel(String channelId, String channelName) {
+        if (channelId == null || Build.VERSION.SDK_INT < Build.VERSION_CODES.O
+                || notificationManager.getNotificationChannel(channelId) != null) {
+            return;
+        }
+        NotificationChannel channel = new NotificationChannel(
+            channelId,
+            channelName != null ? channelName : channelId,
+            NotificationManager.IMPORTANCE_HIGH
+        );
+        notificationManager.createNotificationChannel(channel);
+    }
+    
     // Уведомление слушателей
     
-    private void notifyConnected() {
+    /**
+     * Слушатель приложения уведомления, без своего слушателя - основной
+     */
+    private PushListener listenerFor(String app) {
+        AppRegistry.App owner = apps != null ? apps.get(app) : null;
+        return owner != null && owner.listener != null ? owner.listener : listener;
+    }
+    
+    /**
+     * Основной слушатель и слушатели приложений - соединение у них общее
+     */
+    private List<PushListener> connectionListeners() {
+        List<PushListener> result = new ArrayList<>();
         if (listener != null) {
-            mainHandler.post(() -> listener.onConnected());
+            result.add(listener);
+        }
+        if (apps != null) {
+            for (AppRegistry.App app : apps.all()) {
+                if (app.listener != null && !result.contains(app.listener)) {
+                    result.add(app.listener);
+                }
+            }
+        }
+        return result;
+    }
+    
+    private void notifyConnected() {
+        for (PushListener target : connectionListeners()) {
+            mainHandler.post(target::onConnected);
+        }
+        PushListener forward = remoteListener;
+        if (forward != null) {
+            forward.onConnected();
         }
     }
     
     private void notifyDisconnected() {
-        if (listener != null) {
-            mainHandler.post(() -> listener.onDisconnected());
+        for (PushListener target : connectionListeners()) {
+            mainHandler.post(target::onDisconnected);
+        }
+        PushListener forward = remoteListener;
+        if (forward != null) {
+            forward.onDisconnected();
         }
     }
     
     private void notifyNotificationReceived(PushNotification notification) {
-        if (listener != null) {
-            mainHandler.post(() -> listener.onNotificationReceived(notification));
+        PushListener target = listenerFor(notification.app);
+        if (target != null) {
+            // Приложение читает поле data напрямую - разбираем до передачи
+            notification.getData();
+            mainHandler.post(() -> target.onNotificationReceived(notification));
+        }
+        PushListener forward = remoteListener;
+        if (forward != null) {
+            forward.onNotificationReceived(notification);
+        }
+    }
+    
+    private void notifyNotificationClicked(PushNotification notification) {
+        PushListener target = listenerFor(notification.app);
+        if (target != null) {
+            notification.getData();
+            mainHandler.post(() -> target.onNotificationClicked(notification));
+        }
+        PushListener forward = remoteListener;
+        if (forward != null) {
+            forward.onNotificationClicked(notification);
         }
     }
     
     private void notifyError(String error) {
-        if (listener != null) {
-            mainHandler.post(() -> listener.onError(error));
+        for (PushListener target : connectionListeners()) {
+            mainHandler.post(() -> target.onError(error));
+        }
+        PushListener forward = remoteListener;
+        if (forward != null) {
+            forward.onError(error);
         }
     }
     
+    // Работа в отдельном процессе (PushService)
+    
+    void setRemoteListener(PushListener listener) {
+        this.remoteListener = listener;
+    }
+    
     /**
-     * Вызывается при клике на уведомление
+     * Вызов API из процесса интерфейса, выполняется в процессе :push
      */
-    public void handleNotificationClick(String notificationId, String url, String data) {
-        // Отправляем событие клика на сервер
-        if (webSocket != null && isConnected) {
-            try {
-                JSONObject click = new JSONObject();
-                click.put("type", "click");
-                click.put("notificationId", notificationId);
-                webSocket.send(click.toString());
-            } catch (JSONException e) {
-                Log.e(TAG, "Ошибка отправки события клика", e);
-            }
+    void handleRemoteCall(String method, Bundle args, PushService service) {
+        switch (method) {
+            case RemotePushClient.CALL_INIT:
+                init(args.getString("serverUrl"), args.getString("apiKey"));
+                break;
+            case RemotePushClient.CALL_CONNECT:
+                connect();
+                break;
+            case RemotePushClient.CALL_DISCONNECT:
+                disconnect();
+                break;
+            case RemotePushClient.CALL_REGISTER:
+                registerDevice(args.getString("userId"), args.getStringArrayList("tags"));
+                break;
+            case RemotePushClient.CALL_TAGS:
+                setTags(args.getStringArrayList("tags"));
+                break;
+            case RemotePushClient.CALL_USER:
+                setUserId(args.getString("userId"));
+                break;
+            case RemotePushClient.CALL_MARK_READ:
+                markRead(args.getString("notificationId"));
+                break;
+            case RemotePushClient.CALL_MARK_ALL_READ:
+                markAllRead();
+                break;
+            case RemotePushClient.CALL_ENABLE_METRICS:
+                enableMetrics(args.getLong("intervalMs"), args.getBoolean("listener") ? service::sendMetrics : null);
+                break;
+            case RemotePushClient.CALL_DISABLE_METRICS:
+                disableMetrics();
+                break;
+            case RemotePushClient.CALL_CLICK:
+                whenReady(() -> recordClick(args.getString("notificationId"), args.getString("url"),
+                    args.getString("data"), args.getString("app")));
+                break;
+            case RemotePushClient.CALL_ADD_APP:
+                // Слушатель приложения живёт в процессе интерфейса
+                addApp(args.getString("apiKey"), args.getString("channelId"), args.getString("channelName"), null);
+                break;
+            case RemotePushClient.CALL_FOREGROUND:
+                visibility.onRemoteVisibility(true);
+                break;
+            case RemotePushClient.CALL_BACKGROUND:
+                visibility.onRemoteVisibility(false);
+                break;
         }
-        
-        // Уведомляем слушателя
-        if (listener != null) {
-            PushNotification notification = new PushNotification();
-            notification.id = notificationId;
-            notification.url = url;
-            try {
-                notification.data = data != null ? new JSONObject(data) : null;
-            } catch (JSONException e) {
-                notification.data = null;
+    }
+    
+    /**
+     * Событие PushService в процессе интерфейса (главный поток)
+     */
+    private void onRemoteEvent(String event, Bundle data) {
+        if (event == null) {
+            return;
+        }
+        switch (event) {
+            case PushService.EVENT_CONNECTED:
+                notifyConnected();
+                break;
+            case PushService.EVENT_DISCONNECTED:
+                notifyDisconnected();
+                break;
+            case PushService.EVENT_ERROR:
+                notifyError(data.getString(PushService.KEY_TEXT));
+                break;
+            case PushService.EVENT_NOTIFICATION: {
+                PushNotification notification = remoteNotification(data);
+                if (notification != null) {
+                    notification.app = data.getString(PushService.KEY_APP);
+                    inbox.add(notification);
+                    notifyNotificationReceived(notification);
+                }
+                break;
+            }
+            case PushService.EVENT_CLICKED: {
+                PushNotification notification = remoteNotification(data);
+                if (notification != null) {
+                    notification.app = data.getString(PushService.KEY_APP);
+                    inbox.markClicked(notification.id);
+                    notifyNotificationClicked(notification);
+                }
+                break;
+            }
+            case PushService.EVENT_METRICS: {
+                MetricsListener target = metricsListener;
+                String json = data.getString(PushService.KEY_JSON);
+                if (target != null && json != null) {
+                    try {
+                        target.onMetrics(new JSONObject(json));
+                    } catch (JSONException e) {
+                        Log.e(TAG, "Ошибка разбора метрик PushService", e);
+                    }
+                }
+                break;
             }
-            mainHandler.post(() -> listener.onNotificationClicked(notification));
         }
+    }
+    
+    private static PushNotification remoteNotification(Bundle data) {
+        String json = data.getString(PushService.KEY_JSON);
+        if (json == null) {
+            return null;
+        }
+        try {
+            return NotificationStore.fromJson(new JSONObject(json));
+        } catch (JSONException e) {
+            Log.e(TAG, "Ошибка разбора уведомления PushService", e);
+            return null;
+        }
+    }
+    
+    /**
+     * Вызывается при клике на уведомление
+     */
+    public void handleNotificationClick(String notificationId, String url, String data) {
+        handleNotificationClick(notificationId, url, data, null);
+    }
+    
+    /**
+     * @param app API ключ дополнительного приложения или null
+     */
+    void handleNotificationClick(String notificationId, String url, String data, String app) {
+        // Отправляем событие клика на сервер (пакетом вместе с ACK)
+        whenReady(() -> {
+            if (remote != null) {
+                Bundle args = new Bundle();
+                args.putString("notificationId", notificationId);
+                args.putString("url", url);
+                args.putString("data", data);
+                args.putString("app", app);
+                remote.call(RemotePushClient.CALL_CLICK, args);
+            } else {
+                recordClick(notificationId, url, data, app);
+            }
+        });
         
         // Открываем URL если указан
         if (url != null && !url.isEmpty()) {
@@ -581,4 +2070,17 @@ public class PushSDK {
             context.startActivity(browserIntent);
         }
     }
+    
+    private void recordClick(String notificationId, String url, String data, String app) {
+        eventBatcher.addClick(notificationId);
+        inbox.markClicked(notificationId);
+        
+        // Уведомляем слушателя
+        PushNotification notification = new PushNotification();
+        notification.id = notificationId;
+        notification.url = url;
+        notification.dataJson = data;
+        notification.app = app;
+        notifyNotificationClicked(notification);
+    }
 }
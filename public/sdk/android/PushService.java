@@ -0,0 +1,223 @@
+package com.pushsdk;
+
+import android.app.Service;
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Messenger;
+import android.os.RemoteException;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Служба, владеющая соединением в отдельном процессе
+ * Если служба объявлена в манифесте с android:process=":push", сокет,
+ * ACK и показ уведомлений работают только в этом лёгком процессе, а
+ * процессы интерфейса подключаются к ней через Messenger: передают
+ * вызовы API и получают события для своего PushListener. Так на
+ * устройстве всегда одно соединение, а процесс интерфейса не нужен
+ * для доставки и обработки кликов.
+ */
+public class PushService extends Service {
+    private static final String TAG = "PushSDK";
+
+    // Сообщения от клиентов
+    static final int MSG_REGISTER_CLIENT = 1;
+    static final int MSG_UNREGISTER_CLIENT = 2;
+    static final int MSG_CALL = 3;
+    // Сообщения клиентам
+    static final int MSG_STATE = 4;
+    static final int MSG_EVENT = 5;
+    // Ответ на опрос только вызвавшему клиенту
+    static final int MSG_POLL_RESULT = 6;
+
+    static final String KEY_METHOD = "method";
+    static final String KEY_EVENT = "event";
+    static final String KEY_JSON = "json";
+    static final String KEY_TEXT = "text";
+    static final String KEY_DEVICE_ID = "deviceId";
+    static final String KEY_CONNECTED = "connected";
+    static final String KEY_APP = "app";
+    static final String KEY_REQUEST = "request";
+    static final String KEY_SUCCESS = "success";
+
+    static final String EVENT_CONNECTED = "connected";
+    static final String EVENT_DISCONNECTED = "disconnected";
+    static final String EVENT_NOTIFICATION = "notification";
+    static final String EVENT_CLICKED = "clicked";
+    static final String EVENT_ERROR = "error";
+    static final String EVENT_METRICS = "metrics";
+
+    private final List<Messenger> clients = new ArrayList<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private Messenger messenger;
+    private PushSDK sdk;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        sdk = PushSDK.getInstance(this);
+        messenger = new Messenger(new Handler(Looper.getMainLooper()) {
+            @Override
+            public void handleMessage(Message message) {
+                onClientMessage(message);
+            }
+        });
+        sdk.setRemoteListener(new PushSDK.PushListener() {
+            @Override
+            public void onConnected() {
+                broadcast(EVENT_CONNECTED, null);
+            }
+
+            @Override
+            public void onDisconnected() {
+                broadcast(EVENT_DISCONNECTED, null);
+            }
+
+            @Override
+            public void onNotificationReceived(PushSDK.PushNotification notification) {
+                broadcast(EVENT_NOTIFICATION, notification);
+            }
+
+            @Override
+            public void onNotificationClicked(PushSDK.PushNotification notification) {
+                broadcast(EVENT_CLICKED, notification);
+            }
+
+            @Override
+            public void onError(String error) {
+                Bundle data = new Bundle();
+                data.putString(KEY_TEXT, error);
+                send(EVENT_ERROR, data);
+            }
+        });
+        // После перезапуска процесса системой клиентов может не быть
+        sdk.restoreConnection();
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        // Соединение нужно и без подключённых клиентов
+        return START_STICKY;
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return messenger.getBinder();
+    }
+
+    @Override
+    public void onDestroy() {
+        sdk.setRemoteListener(null);
+        clients.clear();
+        super.onDestroy();
+    }
+
+    /**
+     * Выгрузка метрик в процесс интерфейса, если там задан MetricsListener
+     */
+    void sendMetrics(JSONObject batch) {
+        Bundle data = new Bundle();
+        data.putString(KEY_JSON, batch.toString());
+        send(EVENT_METRICS, data);
+    }
+
+    private void onClientMessage(Message message) {
+        switch (message.what) {
+            case MSG_REGISTER_CLIENT:
+                if (message.replyTo != null && !clients.contains(message.replyTo)) {
+                    clients.add(message.replyTo);
+                    sendState(message.replyTo);
+                }
+                break;
+            case MSG_UNREGISTER_CLIENT:
+                clients.remove(message.replyTo);
+                break;
+            case MSG_CALL:
+                Bundle args = message.getData();
+                String method = args.getString(KEY_METHOD);
+                if (RemotePushClient.CALL_POLL.equals(method)) {
+                    // PollJobService клиента держит задачу до результата опроса
+                    Messenger client = message.replyTo;
+                    int request = args.getInt(KEY_REQUEST);
+                    sdk.poll(success -> sendPollResult(client, request, success));
+                } else if (method != null) {
+                    sdk.handleRemoteCall(method, args, this);
+                }
+                break;
+        }
+    }
+
+    private void sendState(Messenger client) {
+        // deviceId известен только после загрузки SDK
+        sdk.whenReady(() -> {
+            Message state = Message.obtain(null, MSG_STATE);
+            Bundle data = new Bundle();
+            data.putString(KEY_DEVICE_ID, sdk.getDeviceId());
+            data.putBoolean(KEY_CONNECTED, sdk.isConnected());
+            state.setData(data);
+            try {
+                client.send(state);
+            } catch (RemoteException e) {
+                Log.d(TAG, "Клиент PushService недоступен");
+            }
+        });
+    }
+
+    private void sendPollResult(Messenger client, int request, boolean success) {
+        if (client == null) {
+            return;
+        }
+        Message result = Message.obtain(null, MSG_POLL_RESULT);
+        Bundle data = new Bundle();
+        data.putInt(KEY_REQUEST, request);
+        data.putBoolean(KEY_SUCCESS, success);
+        result.setData(data);
+        try {
+            client.send(result);
+        } catch (RemoteException e) {
+            Log.d(TAG, "Клиент PushService недоступен");
+        }
+    }
+
+    private void broadcast(String event, PushSDK.PushNotification notification) {
+        Bundle data = new Bundle();
+        if (notification != null) {
+            try {
+                data.putString(KEY_JSON, NotificationStore.toJson(notification).toString());
+                data.putString(KEY_APP, notification.app);
+            } catch (JSONException e) {
+                Log.e(TAG, "Ошибка передачи уведомления клиенту", e);
+                return;
+            }
+        }
+        send(event, data);
+    }
+
+    /**
+     * Событие всем клиентам, из любого потока
+     */
+    private void send(String event, Bundle data) {
+        data.putString(KEY_EVENT, event);
+        mainHandler.post(() -> {
+            for (int i = clients.size() - 1; i >= 0; i--) {
+                Message message = Message.obtain(null, MSG_EVENT);
+                message.setData(data);
+                try {
+                    clients.get(i).send(message);
+                } catch (RemoteException e) {
+                    // Процесс клиента завершился
+                    clients.remove(i);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,146 @@
+package com.pushsdk;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.Random;
+
+/**
+ * Планировщик переподключений
+ * Экспоненциальная задержка с decorrelated jitter, без окончательного
+ * отказа, с учётом подсказки retry-after от сервера и немедленным
+ * переподключением при появлении сети. Работает в своём потоке,
+ * а не на главном Looper.
+ */
+class ReconnectScheduler {
+    private static final String TAG = "PushSDK";
+
+    private static final long BASE_DELAY_MS = 2000;
+    private static final long MAX_DELAY_MS = 5 * 60 * 1000;
+
+    private final Handler handler;
+    private final Runnable reconnect;
+    private final Random random = new Random();
+
+    private long previousDelayMs = BASE_DELAY_MS;
+    private long retryNotBefore = 0; // elapsedRealtime, раньше которого подключаться нельзя
+    private int attempts = 0;
+
+    ReconnectScheduler(Runnable reconnect) {
+        HandlerThread thread = new HandlerThread("PushSDK-reconnect");
+        thread.start();
+        this.handler = new Handler(thread.getLooper());
+        this.reconnect = reconnect;
+    }
+
+    /**
+     * Планирование следующей попытки
+     */
+    synchronized void schedule() {
+        attempts++;
+
+        // Decorrelated jitter: random(base, previous * 3), но не больше потолка
+        long upper = Math.min(MAX_DELAY_MS, previousDelayMs * 3);
+        long delay = BASE_DELAY_MS + (long) (random.nextDouble() * Math.max(0, upper - BASE_DELAY_MS));
+        previousDelayMs = delay;
+
+        // Сервер попросил подождать - не раньше указанного времени
+        long untilAllowed = retryNotBefore - SystemClock.elapsedRealtime();
+        if (untilAllowed > delay) {
+            delay = untilAllowed + (long) (random.nextDouble() * BASE_DELAY_MS);
+        }
+
+        Log.d(TAG, "Переподключение через " + delay + "мс (попытка " + attempts + ")");
+
+        handler.removeCallbacks(reconnect);
+        handler.postDelayed(reconnect, delay);
+    }
+
+    /**
+     * Одна отложенная попытка с разбросом до BASE_DELAY_MS
+     * Задержка не растёт и не считается неудачной попыткой
+     */
+    synchronized void scheduleAfter(long delayMs) {
+        long delay = delayMs + (long) (random.nextDouble() * BASE_DELAY_MS);
+        Log.d(TAG, "Переподключение через " + delay + "мс");
+
+        handler.removeCallbacks(reconnect);
+        handler.postDelayed(reconnect, delay);
+    }
+
+    /**
+     * Подсказка сервера (Retry-After или причина закрытия)
+     */
+    synchronized void setRetryAfter(long delayMs) {
+        if (delayMs > 0) {
+            retryNotBefore = SystemClock.elapsedRealtime() + Math.min(delayMs, MAX_DELAY_MS);
+        }
+    }
+
+    /**
+     * Сеть снова доступна - подключаемся сразу, сбрасывая задержку
+     * Подсказка retry-after при этом по-прежнему соблюдается
+     */
+    synchronized void resumeNow() {
+        previousDelayMs = BASE_DELAY_MS;
+        handler.removeCallbacks(reconnect);
+
+        long untilAllowed = retryNotBefore - SystemClock.elapsedRealtime();
+        if (untilAllowed > 0) {
+            handler.postDelayed(reconnect, untilAllowed);
+        } else {
+            handler.post(reconnect);
+        }
+    }
+
+    /**
+     * Число неудачных попыток подряд
+     */
+    synchronized int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Успешное подключение
+     */
+    synchronized void reset() {
+        attempts = 0;
+        previousDelayMs = BASE_DELAY_MS;
+        handler.removeCallbacks(reconnect);
+    }
+
+    /**
+     * Отмена запланированных попыток (disconnect)
+     */
+    synchronized void cancel() {
+        handler.removeCallbacks(reconnect);
+    }
+
+    /**
+     * Разбор подсказки retry-after: секунды из заголовка Retry-After
+     * или причины закрытия вида "retry-after=30"
+     * @return задержка в мс или 0
+     */
+    static long parseRetryAfter(String value) {
+        if (value == null) {
+            return 0;
+        }
+        String seconds = value.trim();
+        int index = seconds.indexOf("retry-after=");
+        if (index >= 0) {
+            seconds = seconds.substring(index + "retry-after=".length());
+            int end = 0;
+            while (end < seconds.length() && Character.isDigit(seconds.charAt(end))) {
+                end++;
+            }
+            seconds = seconds.substring(0, end);
+        }
+        try {
+            return Long.parseLong(seconds) * 1000;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
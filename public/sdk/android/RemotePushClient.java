@@ -0,0 +1,302 @@
+package com.pushsdk;
+
+import android.app.Application;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.content.pm.PackageManager;
+import android.content.pm.ServiceInfo;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Messenger;
+import android.os.RemoteException;
+import android.util.Log;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Подключение процесса интерфейса к PushService в процессе :push
+ * Вызовы API передаются службе, пока её нет - копятся по порядку.
+ * После перезапуска процесса :push init и connect повторяются,
+ * чтобы соединение восстановилось без участия приложения.
+ */
+class RemotePushClient {
+    private static final String TAG = "PushSDK";
+
+    static final String CALL_INIT = "init";
+    static final String CALL_CONNECT = "connect";
+    static final String CALL_DISCONNECT = "disconnect";
+    static final String CALL_REGISTER = "register";
+    static final String CALL_TAGS = "tags";
+    static final String CALL_USER = "user";
+    static final String CALL_MARK_READ = "markRead";
+    static final String CALL_MARK_ALL_READ = "markAllRead";
+    static final String CALL_ENABLE_METRICS = "enableMetrics";
+    static final String CALL_DISABLE_METRICS = "disableMetrics";
+    static final String CALL_CLICK = "click";
+    static final String CALL_POLL = "poll";
+    static final String CALL_FOREGROUND = "foreground";
+    static final String CALL_BACKGROUND = "background";
+    static final String CALL_ADD_APP = "addApp";
+
+    // Сколько синхронные методы ждут первого состояния службы
+    private static final long STATE_TIMEOUT_MS = 2000;
+
+    /**
+     * События службы для PushSDK в процессе интерфейса
+     */
+    interface Events {
+        void onRemoteEvent(String event, Bundle data);
+    }
+
+    private final Context context;
+    private final Events events;
+    private final AppVisibility visibility;
+    private final Messenger replyTo;
+
+    private Messenger service;
+    private boolean wasBound = false;
+    private final List<Bundle> queued = new ArrayList<>();
+    // Повторяются после перезапуска процесса :push
+    private Bundle initArgs;
+    private boolean connectRequested = false;
+    private final List<Bundle> appArgs = new ArrayList<>();
+    // Опросы, ждущие ответа службы
+    private final Map<Integer, PushSDK.PollCallback> polls = new HashMap<>();
+    private int nextPoll = 1;
+
+    private volatile String deviceId;
+    private volatile boolean connected = false;
+    private final CountDownLatch stateLatch = new CountDownLatch(1);
+
+    private final ServiceConnection connection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            onBound(new Messenger(binder));
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            // Процесс :push завершился, система подключит его снова
+            List<PushSDK.PollCallback> failed;
+            synchronized (RemotePushClient.this) {
+                service = null;
+                failed = new ArrayList<>(polls.values());
+                polls.clear();
+            }
+            connected = false;
+            // Опрос прерван вместе с процессом - задача повторит его по backoff
+            for (PushSDK.PollCallback callback : failed) {
+                callback.onComplete(false);
+            }
+            Log.d(TAG, "PushService отключена");
+        }
+    };
+
+    RemotePushClient(Context context, AppVisibility visibility, Events events) {
+        this.context = context;
+        this.visibility = visibility;
+        this.events = events;
+        this.replyTo = new Messenger(new Handler(Looper.getMainLooper()) {
+            @Override
+            public void handleMessage(Message message) {
+                onServiceMessage(message);
+            }
+        });
+    }
+
+    /**
+     * Объявлена ли PushService в другом процессе
+     * Без службы в манифесте SDK работает в процессе приложения, как раньше
+     */
+    static boolean isServiceInOtherProcess(Context context) {
+        ServiceInfo info;
+        try {
+            info = context.getPackageManager().getServiceInfo(new ComponentName(context, PushService.class), 0);
+        } catch (PackageManager.NameNotFoundException e) {
+            return false;
+        }
+        String current = currentProcessName();
+        return info.processName != null && current != null && !info.processName.equals(current);
+    }
+
+    /**
+     * Запуск и подключение службы
+     */
+    void bind() {
+        Intent intent = new Intent(context, PushService.class);
+        try {
+            // Запущенная служба держит соединение и без процесса интерфейса
+            context.startService(intent);
+        } catch (IllegalStateException e) {
+            // Запуск из фона запрещён (Android 8+) - хватит привязки
+            Log.d(TAG, "PushService запускается только привязкой");
+        }
+        if (!context.bindService(intent, connection, Context.BIND_AUTO_CREATE)) {
+            Log.e(TAG, "Не удалось подключиться к PushService");
+        }
+    }
+
+    void call(String method) {
+        call(method, new Bundle());
+    }
+
+    void call(String method, Bundle args) {
+        args.putString(PushService.KEY_METHOD, method);
+        Messenger target;
+        synchronized (this) {
+            if (CALL_INIT.equals(method)) {
+                initArgs = args;
+            } else if (CALL_CONNECT.equals(method)) {
+                connectRequested = true;
+            } else if (CALL_DISCONNECT.equals(method)) {
+                connectRequested = false;
+            } else if (CALL_ADD_APP.equals(method)) {
+                appArgs.add(args);
+            }
+            target = service;
+            if (target == null) {
+                queued.add(args);
+                return;
+            }
+        }
+        send(target, PushService.MSG_CALL, args);
+    }
+
+    /**
+     * Опрос в процессе :push, callback - по его завершении
+     */
+    void poll(PushSDK.PollCallback callback) {
+        Bundle args = new Bundle();
+        synchronized (this) {
+            int request = nextPoll++;
+            polls.put(request, callback);
+            args.putInt(PushService.KEY_REQUEST, request);
+        }
+        call(CALL_POLL, args);
+    }
+
+    String getDeviceId() {
+        awaitState();
+        return deviceId;
+    }
+
+    boolean isConnected() {
+        return connected;
+    }
+
+    private void onBound(Messenger bound) {
+        List<Bundle> pending = new ArrayList<>();
+        synchronized (this) {
+            service = bound;
+            if (wasBound) {
+                // Процесс :push перезапущен - восстанавливаем его состояние
+                if (initArgs != null) {
+                    pending.add(initArgs);
+                }
+                pending.addAll(appArgs);
+                if (connectRequested) {
+                    Bundle connect = new Bundle();
+                    connect.putString(PushService.KEY_METHOD, CALL_CONNECT);
+                    pending.add(connect);
+                }
+            }
+            pending.addAll(queued);
+            queued.clear();
+            wasBound = true;
+        }
+
+        send(bound, PushService.MSG_REGISTER_CLIENT, new Bundle());
+        Bundle visible = new Bundle();
+        visible.putString(PushService.KEY_METHOD, visibility.isForeground() ? CALL_FOREGROUND : CALL_BACKGROUND);
+        send(bound, PushService.MSG_CALL, visible);
+        for (Bundle args : pending) {
+            send(bound, PushService.MSG_CALL, args);
+        }
+        Log.d(TAG, "Подключено к PushService");
+    }
+
+    private void onServiceMessage(Message message) {
+        Bundle data = message.getData();
+        switch (message.what) {
+            case PushService.MSG_STATE:
+                deviceId = data.getString(PushService.KEY_DEVICE_ID);
+                connected = data.getBoolean(PushService.KEY_CONNECTED);
+                stateLatch.countDown();
+                break;
+            case PushService.MSG_EVENT:
+                String event = data.getString(PushService.KEY_EVENT);
+                if (PushService.EVENT_CONNECTED.equals(event)) {
+                    connected = true;
+                } else if (PushService.EVENT_DISCONNECTED.equals(event)) {
+                    connected = false;
+                }
+                events.onRemoteEvent(event, data);
+                break;
+            case PushService.MSG_POLL_RESULT:
+                PushSDK.PollCallback callback;
+                synchronized (this) {
+                    callback = polls.remove(data.getInt(PushService.KEY_REQUEST));
+                }
+                if (callback != null) {
+                    callback.onComplete(data.getBoolean(PushService.KEY_SUCCESS));
+                }
+                break;
+        }
+    }
+
+    private void send(Messenger target, int what, Bundle data) {
+        Message message = Message.obtain(null, what);
+        message.replyTo = replyTo;
+        message.setData(data);
+        try {
+            target.send(message);
+        } catch (RemoteException e) {
+            // Служба завершилась - onServiceDisconnected и повторное подключение придут следом
+            Log.e(TAG, "Ошибка вызова PushService", e);
+        }
+    }
+
+    private void awaitState() {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            // Ответ службы приходит в главный поток - ждать в нём нельзя
+            return;
+        }
+        try {
+            stateLatch.await(STATE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String currentProcessName() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            return Application.getProcessName();
+        }
+        try (InputStream in = new FileInputStream("/proc/self/cmdline")) {
+            byte[] buffer = new byte[256];
+            int length = in.read(buffer);
+            int end = 0;
+            while (end < length && buffer[end] != 0) {
+                end++;
+            }
+            return end > 0 ? new String(buffer, 0, end, StandardCharsets.UTF_8) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
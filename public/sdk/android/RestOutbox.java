@@ -0,0 +1,297 @@
+package com.pushsdk;
+
+import android.os.Handler;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Персистентная очередь REST-вызовов (регистрация, теги, пользователь)
+ * Операции пишутся в append-only файл и переживают смерть процесса.
+ * Повторные операции одного типа схлопываются: отправляется только
+ * последнее состояние. При ошибке сети очередь повторяется
+ * с экспоненциальной задержкой.
+ */
+class RestOutbox {
+    private static final String TAG = "PushSDK";
+    private static final String FILE_NAME = "push_outbox.log";
+
+    static final String OP_REGISTER = "register";
+    static final String OP_TAGS = "tags";
+    static final String OP_USER = "user";
+
+    private static final long INITIAL_BACKOFF_MS = 1000;
+    private static final long MAX_BACKOFF_MS = 5 * 60 * 1000;
+    private static final int COMPACT_THRESHOLD = 64;
+
+    /**
+     * Выполнение операции. Возвращает true, если операция завершена
+     * (успешно или с неисправимой ошибкой), false - если нужно повторить
+     */
+    interface Transport {
+        boolean execute(String op, JSONObject body) throws Exception;
+    }
+
+    private static class Entry {
+        final String op;
+        final long seq;
+        final JSONObject body;
+
+        Entry(String op, long seq, JSONObject body) {
+            this.op = op;
+            this.seq = seq;
+            this.body = body;
+        }
+    }
+
+    private final File file;
+    private final ExecutorService executor;
+    private final Handler handler;
+    private final Transport transport;
+
+    // op -> последняя незавершённая операция этого типа
+    private final Map<String, Entry> pending = new HashMap<>();
+    private long nextSeq = 1;
+    private int linesWritten = 0;
+
+    private long backoffMs = INITIAL_BACKOFF_MS;
+    private boolean draining = false;
+    private boolean retryScheduled = false;
+
+    private final Runnable retryRunnable = () -> {
+        synchronized (this) {
+            retryScheduled = false;
+        }
+        drain();
+    };
+
+    RestOutbox(File filesDir, ExecutorService executor, Handler handler, Transport transport) {
+        this.file = new File(filesDir, FILE_NAME);
+        this.executor = executor;
+        this.handler = handler;
+        this.transport = transport;
+        load();
+    }
+
+    /**
+     * Добавление операции в очередь. Заменяет более старую операцию того же типа
+     */
+    synchronized void enqueue(String op, JSONObject body) {
+        // Замена встаёт в конец очереди: register и setTags/setUserId пишут
+        // одни и те же поля, и на сервере должен остаться последний вызов
+        long seq = nextSeq++;
+        Entry entry = new Entry(op, seq, body);
+        pending.put(op, entry);
+
+        try {
+            JSONObject line = new JSONObject();
+            line.put("op", op);
+            line.put("seq", seq);
+            line.put("body", body);
+            append(line);
+        } catch (JSONException e) {
+            Log.e(TAG, "Ошибка записи в очередь запросов", e);
+        }
+
+        drain();
+    }
+
+    /**
+     * Сброс задержки и немедленная отправка (например, при появлении сети)
+     */
+    void resume() {
+        synchronized (this) {
+            backoffMs = INITIAL_BACKOFF_MS;
+            if (retryScheduled) {
+                handler.removeCallbacks(retryRunnable);
+                retryScheduled = false;
+            }
+        }
+        drain();
+    }
+
+    synchronized boolean isEmpty() {
+        return pending.isEmpty();
+    }
+
+    synchronized int size() {
+        return pending.size();
+    }
+
+    /**
+     * Последовательная отправка операций в порядке добавления
+     */
+    void drain() {
+        synchronized (this) {
+            if (draining || retryScheduled || pending.isEmpty()) {
+                return;
+            }
+            draining = true;
+        }
+        executor.execute(this::drainInternal);
+    }
+
+    private void drainInternal() {
+        while (true) {
+            Entry entry;
+            synchronized (this) {
+                entry = oldest();
+                if (entry == null) {
+                    draining = false;
+                    backoffMs = INITIAL_BACKOFF_MS;
+                    return;
+                }
+            }
+
+            boolean done;
+            try {
+                done = transport.execute(entry.op, entry.body);
+            } catch (Exception e) {
+                Log.e(TAG, "Ошибка выполнения запроса " + entry.op, e);
+                done = false;
+            }
+
+            synchronized (this) {
+                if (!done) {
+                    draining = false;
+                    scheduleRetry();
+                    return;
+                }
+                complete(entry);
+            }
+        }
+    }
+
+    private void scheduleRetry() {
+        Log.d(TAG, "Повтор запросов через " + backoffMs + "мс");
+        retryScheduled = true;
+        handler.postDelayed(retryRunnable, backoffMs);
+        backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+    }
+
+    private void complete(Entry entry) {
+        // Операцию могли заменить, пока она выполнялась
+        Entry current = pending.get(entry.op);
+        if (current != entry) {
+            return;
+        }
+        pending.remove(entry.op);
+
+        try {
+            JSONObject line = new JSONObject();
+            line.put("done", entry.op);
+            line.put("seq", entry.seq);
+            append(line);
+        } catch (JSONException e) {
+            Log.e(TAG, "Ошибка записи в очередь запросов", e);
+        }
+    }
+
+    private Entry oldest() {
+        Entry result = null;
+        for (Entry entry : pending.values()) {
+            if (result == null || entry.seq < result.seq) {
+                result = entry;
+            }
+        }
+        return result;
+    }
+
+    // Работа с файлом
+
+    private void append(JSONObject line) {
+        if (linesWritten >= COMPACT_THRESHOLD) {
+            compact();
+        }
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8)) {
+            writer.write(line.toString());
+            writer.write('\n');
+            linesWritten++;
+        } catch (IOException e) {
+            Log.e(TAG, "Ошибка записи файла очереди", e);
+        }
+    }
+
+    /**
+     * Перезапись файла только с актуальными операциями
+     */
+    private void compact() {
+        List<Entry> entries = new ArrayList<>(pending.values());
+        Collections.sort(entries, Comparator.comparingLong(e -> e.seq));
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            for (Entry entry : entries) {
+                JSONObject line = new JSONObject();
+                line.put("op", entry.op);
+                line.put("seq", entry.seq);
+                line.put("body", entry.body);
+                writer.write(line.toString());
+                writer.write('\n');
+            }
+        } catch (IOException | JSONException e) {
+            Log.e(TAG, "Ошибка сжатия файла очереди", e);
+            return;
+        }
+
+        if (tmp.renameTo(file)) {
+            linesWritten = entries.size();
+        }
+    }
+
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String text;
+            while ((text = reader.readLine()) != null) {
+                linesWritten++;
+                JSONObject line;
+                try {
+                    line = new JSONObject(text);
+                } catch (JSONException e) {
+                    // Недописанная строка после сбоя - пропускаем
+                    continue;
+                }
+
+                long seq = line.optLong("seq");
+                nextSeq = Math.max(nextSeq, seq + 1);
+
+                if (line.has("done")) {
+                    Entry entry = pending.get(line.optString("done"));
+                    if (entry != null && entry.seq == seq) {
+                        pending.remove(entry.op);
+                    }
+                } else {
+                    String op = line.optString("op");
+                    JSONObject body = line.optJSONObject("body");
+                    if (body != null) {
+                        pending.put(op, new Entry(op, seq, body));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Ошибка чтения файла очереди", e);
+        }
+    }
+}
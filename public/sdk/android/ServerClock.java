@@ -0,0 +1,39 @@
+package com.pushsdk;
+
+import android.os.SystemClock;
+
+/**
+ * Часы сервера
+ * expiresAt и timestamp уведомлений - время сервера, а часы телефона
+ * могут расходиться с ним на минуты и часы. Время сервера берётся из
+ * фрейма registered или ответа опроса и дальше отсчитывается по
+ * elapsedRealtime, поэтому перевод часов на устройстве его не сбивает.
+ * До первой синхронизации используются часы устройства.
+ */
+class ServerClock {
+    private long serverAt;
+    private long elapsedAt;
+    private boolean synced = false;
+
+    /**
+     * @param serverMs время сервера (мс), 0 - неизвестно
+     */
+    synchronized void sync(long serverMs) {
+        if (serverMs <= 0) {
+            return;
+        }
+        serverAt = serverMs;
+        elapsedAt = SystemClock.elapsedRealtime();
+        synced = true;
+    }
+
+    /**
+     * Текущее время по часам сервера
+     */
+    synchronized long now() {
+        if (!synced) {
+            return System.currentTimeMillis();
+        }
+        return serverAt + (SystemClock.elapsedRealtime() - elapsedAt);
+    }
+}
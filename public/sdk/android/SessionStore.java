@@ -0,0 +1,107 @@
+package com.pushsdk;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import java.util.TreeSet;
+
+/**
+ * Состояние сессии WebSocket для возобновления после обрыва
+ * Хранит эпоху сервера и последний непрерывно подтверждённый seq.
+ * Дубликаты по id отсекает {@link NotificationIndex}.
+ */
+class SessionStore {
+    private static final String TAG = "PushSDK";
+    private static final String PREFS_NAME = "PushSDKSession";
+    private static final String KEY_EPOCH = "epoch";
+    private static final String KEY_LAST_SEQ = "last_seq";
+    private static final String KEY_ACKED = "acked_seqs";
+
+    private static final int MAX_ACKED_GAP = 256;
+
+    private final SharedPreferences prefs;
+
+    private String epoch;
+    private long lastSeq;
+    // Подтверждённые seq после разрыва в последовательности
+    private final TreeSet<Long> acked = new TreeSet<>();
+
+    SessionStore(Context context) {
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.epoch = prefs.getString(KEY_EPOCH, null);
+        this.lastSeq = prefs.getLong(KEY_LAST_SEQ, 0);
+
+        try {
+            JSONArray ackedArray = new JSONArray(prefs.getString(KEY_ACKED, "[]"));
+            for (int i = 0; i < ackedArray.length(); i++) {
+                acked.add(ackedArray.getLong(i));
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "Ошибка чтения состояния сессии", e);
+        }
+    }
+
+    synchronized String getEpoch() {
+        return epoch;
+    }
+
+    synchronized long getLastSeq() {
+        return lastSeq;
+    }
+
+    /**
+     * Ответ registered: эпоха сервера и наименьший seq, который он ещё пришлёт
+     */
+    synchronized void onRegistered(String serverEpoch, long minSeq) {
+        if (serverEpoch == null) {
+            return;
+        }
+        if (!serverEpoch.equals(epoch)) {
+            // Сервер перезапущен - нумерация начинается заново
+            epoch = serverEpoch;
+            lastSeq = 0;
+            acked.clear();
+        }
+        // Сообщений ниже minSeq у сервера нет, ждать их бессмысленно
+        if (minSeq - 1 > lastSeq) {
+            lastSeq = minSeq - 1;
+        }
+        advance();
+        persist();
+    }
+
+    /**
+     * Уведомление с номером seq обработано и подтверждено
+     */
+    synchronized void onAcked(long seq) {
+        if (seq <= lastSeq) {
+            return;
+        }
+        acked.add(seq);
+        advance();
+        persist();
+    }
+
+    private void advance() {
+        acked.headSet(lastSeq, true).clear();
+        while (!acked.isEmpty() && acked.first() == lastSeq + 1) {
+            lastSeq = acked.pollFirst();
+        }
+        // Разрыв, который уже не закроется (сообщение вытеснено из очереди сервера)
+        while (acked.size() > MAX_ACKED_GAP) {
+            lastSeq = acked.pollFirst();
+        }
+    }
+
+    private void persist() {
+        prefs.edit()
+            .putString(KEY_EPOCH, epoch)
+            .putLong(KEY_LAST_SEQ, lastSeq)
+            .putString(KEY_ACKED, new JSONArray(acked).toString())
+            .apply();
+    }
+}
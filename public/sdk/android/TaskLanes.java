@@ -0,0 +1,110 @@
+package com.pushsdk;
+
+import android.os.Process;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Раздельные очереди фоновой работы SDK
+ * Показ уведомлений, загрузка медиа, REST-вызовы и управление
+ * соединением идут в своих потоках, чтобы медленный запрос или
+ * картинка не задерживали показ следующих уведомлений.
+ */
+final class TaskLanes {
+    // Очередь показа ограничена: при переполнении задачу выполняет вызывающий поток
+    private static final int DISPLAY_QUEUE_SIZE = 64;
+    private static final int MEDIA_THREADS = 3;
+    private static final long IDLE_SECONDS = 30;
+
+    private final ThreadPoolExecutor display;
+    private final ThreadPoolExecutor media;
+    private final ExecutorService api;
+    private final ExecutorService control;
+
+    TaskLanes() {
+        this.display = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(DISPLAY_QUEUE_SIZE),
+            threadFactory("PushSDK-display", Process.THREAD_PRIORITY_DISPLAY),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+
+        ThreadPoolExecutor media = new ThreadPoolExecutor(MEDIA_THREADS, MEDIA_THREADS,
+            IDLE_SECONDS, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            threadFactory("PushSDK-media", Process.THREAD_PRIORITY_BACKGROUND));
+        media.allowCoreThreadTimeOut(true);
+        this.media = media;
+
+        // REST-вызовы строго по порядку - на этом построена RestOutbox
+        ThreadPoolExecutor api = new ThreadPoolExecutor(1, 1,
+            IDLE_SECONDS, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            threadFactory("PushSDK-api", Process.THREAD_PRIORITY_BACKGROUND));
+        api.allowCoreThreadTimeOut(true);
+        this.api = api;
+
+        // Загрузка состояния и вызовы публичного API - строго по порядку
+        ThreadPoolExecutor control = new ThreadPoolExecutor(1, 1,
+            IDLE_SECONDS, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            threadFactory("PushSDK-control", Process.THREAD_PRIORITY_BACKGROUND));
+        control.allowCoreThreadTimeOut(true);
+        this.control = control;
+    }
+
+    /**
+     * Сборка и показ уведомлений
+     */
+    void display(Runnable task) {
+        display.execute(task);
+    }
+
+    /**
+     * Загрузка изображений, параллельно с ограничением
+     */
+    void media(Runnable task) {
+        media.execute(task);
+    }
+
+    /**
+     * REST-вызовы и прочая работа с диском
+     */
+    void api(Runnable task) {
+        api.execute(task);
+    }
+
+    /**
+     * Загрузка SDK и управление соединением
+     */
+    void control(Runnable task) {
+        control.execute(task);
+    }
+
+    ExecutorService apiExecutor() {
+        return api;
+    }
+
+    int displayBacklog() {
+        return display.getQueue().size();
+    }
+
+    int mediaBacklog() {
+        return media.getQueue().size();
+    }
+
+    private static ThreadFactory threadFactory(String name, int priority) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(priority);
+                runnable.run();
+            }, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,166 @@
+package com.pushsdk;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Кэш шаблонов кампаний
+ * Первый фрейм рассылки приносит шаблон с версией, следующие - только
+ * templateId и переменные устройства. Шаблоны живут в памяти в LRU
+ * ограниченного размера, их список уходит серверу при регистрации.
+ * Вытесненный шаблон догружается по REST.
+ */
+class TemplateCache {
+    private static final int MAX_TEMPLATES = 32;
+
+    /**
+     * Контент кампании, в текстовых полях - переменные вида {{name}}
+     */
+    static final class Template {
+        final String id;
+        final long version;
+        String title;
+        String body;
+        String icon;
+        String image;
+        String url;
+        String dataJson;
+        String channelId;
+        String group;
+
+        Template(String id, long version) {
+            this.id = id;
+            this.version = version;
+        }
+    }
+
+    private final Map<String, Template> templates = new LinkedHashMap<String, Template>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Template> eldest) {
+            return size() > MAX_TEMPLATES;
+        }
+    };
+
+    synchronized void put(Template template) {
+        templates.put(template.id, template);
+    }
+
+    /**
+     * Шаблоны в кэше в формате сервера: id:version
+     */
+    synchronized JSONArray keys() {
+        JSONArray keys = new JSONArray();
+        for (Template template : templates.values()) {
+            keys.put(template.id + ":" + template.version);
+        }
+        return keys;
+    }
+
+    /**
+     * Заполнение уведомления из шаблона
+     * Шаблон из самого фрейма сначала попадает в кэш
+     * @return false - нужной версии шаблона нет в кэше
+     */
+    boolean apply(PushSDK.PushNotification notification) throws JSONException {
+        if (notification.templateJson != null) {
+            put(parse(notification.templateId, notification.templateVersion, new JSONObject(notification.templateJson)));
+            notification.templateJson = null;
+        }
+
+        Template template;
+        synchronized (this) {
+            template = templates.get(notification.templateId);
+        }
+        if (template == null || template.version != notification.templateVersion) {
+            return false;
+        }
+
+        JSONObject vars = notification.varsJson != null ? new JSONObject(notification.varsJson) : null;
+        // Поля самого фрейма важнее шаблона
+        if (notification.title == null) {
+            notification.title = substitute(template.title, vars);
+        }
+        if (notification.body == null) {
+            notification.body = substitute(template.body, vars);
+        }
+        if (notification.icon == null) {
+            notification.icon = template.icon;
+        }
+        if (notification.image == null) {
+            notification.image = substitute(template.image, vars);
+        }
+        if (notification.url == null) {
+            notification.url = substitute(template.url, vars);
+        }
+        if (notification.data == null && notification.dataJson == null) {
+            notification.dataJson = template.dataJson;
+        }
+        if (notification.channelId == null) {
+            notification.channelId = template.channelId;
+        }
+        if (notification.group == null) {
+            notification.group = template.group;
+        }
+        // Уведомление собрано, повторная обработка шаблон не ищет
+        notification.templateId = null;
+        return true;
+    }
+
+    /**
+     * Шаблон из фрейма или ответа REST
+     */
+    static Template parse(String id, long version, JSONObject json) {
+        Template template = new Template(id, version);
+        template.title = optNullable(json, "title");
+        template.body = optNullable(json, "body");
+        template.icon = optNullable(json, "icon");
+        template.image = optNullable(json, "image");
+        template.url = optNullable(json, "url");
+        template.channelId = optNullable(json, "channelId");
+        template.group = optNullable(json, "group");
+        JSONObject data = json.optJSONObject("data");
+        template.dataJson = data != null ? data.toString() : null;
+        return template;
+    }
+
+    /**
+     * Подстановка переменных {{name}}, отсутствующие заменяются пустой строкой
+     * Имя - всё между {{ и ближайшими }} (например, {{user.name}}),
+     * сервер при рендере для опроса разбирает так же
+     */
+    static String substitute(String value, JSONObject vars) {
+        if (value == null) {
+            return null;
+        }
+        int start = value.indexOf("{{");
+        if (start < 0) {
+            return value;
+        }
+
+        StringBuilder builder = new StringBuilder(value.length() + 16);
+        int pos = 0;
+        while (start >= 0) {
+            int end = value.indexOf("}}", start + 2);
+            if (end < 0) {
+                break;
+            }
+            builder.append(value, pos, start);
+            String name = value.substring(start + 2, end);
+            if (vars != null && vars.has(name) && !vars.isNull(name)) {
+                builder.append(vars.opt(name));
+            }
+            pos = end + 2;
+            start = value.indexOf("{{", pos);
+        }
+        builder.append(value, pos, value.length());
+        return builder.toString();
+    }
+
+    private static String optNullable(JSONObject json, String key) {
+        return json.isNull(key) ? null : json.optString(key);
+    }
+}
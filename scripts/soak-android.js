@@ -0,0 +1,373 @@
+/**
+ * Нагрузочный прогон (soak) Android WebSocket канала
+ *
+ * Поднимает настоящий src/providers/android-push.js на локальном порту
+ * и подключает N клиентов, которые ведут себя как PushSDK: register с
+ * MessagePack/словарём и курсором сессии, пакетные ack_batch, дедупликация
+ * по id, переподключение с decorrelated jitter. Сеть и БД не нужны.
+ *
+ * Этапы:
+ *   1. подключение всех клиентов - время и память на соединение;
+ *   2. пропускная способность - уведомлений в секунду до клиентов и время до ACK;
+ *   3. reconnect storm - обрыв всех соединений, отправка в офлайн,
+ *      переподключение и проверка, что ни одно уведомление не потеряно.
+ *      Повторы (уведомление пришло снова, SDK отбросит его по id) считаются
+ *      отдельно - их рост означает регрессию курсора сессии.
+ *
+ * Запуск:
+ *   node --expose-gc scripts/soak-android.js --clients 2000 --messages 20 --offline 5 --storms 3
+ * Каждое соединение занимает два дескриптора (клиент и сервер в одном процессе),
+ * при большом числе клиентов поднимите лимит: ulimit -n 65536
+ * Код возврата 1, если есть потерянные уведомления.
+ */
+const http = require('http');
+const WebSocket = require('ws');
+const msgpack = require('../src/providers/msgpack');
+const frameDictionary = require('../src/providers/frame-dictionary');
+
+const ACK_FLUSH_MS = 500;     // как EventBatcher в SDK
+const RECONNECT_BASE_MS = 200; // задержки SDK уменьшены, чтобы прогон шёл минуты, а не часы
+const RECONNECT_MAX_MS = 5000;
+const WAIT_TIMEOUT_MS = 120000;
+
+const options = parseArgs(process.argv.slice(2));
+
+// Логи провайдера на тысячах соединений только мешают
+const log = (...args) => process.stdout.write(args.join(' ') + '\n');
+if (!options.verbose) {
+  console.log = () => {};
+  console.error = () => {};
+}
+
+const androidPushProvider = require('../src/providers/android-push');
+
+/**
+ * Клиент, повторяющий протокол PushSDK
+ */
+class SoakClient {
+  constructor(url, index, stats) {
+    this.url = url;
+    this.deviceId = `soak-${index}`;
+    this.token = `soak-token-${index}`;
+    this.stats = stats;
+
+    this.ws = null;
+    this.registered = false;
+    this.stopped = false;
+    this.encoding = 'json';
+
+    // Сессия: эпоха сервера и последний непрерывно подтверждённый seq
+    this.epoch = null;
+    this.lastSeq = 0;
+    this.ackedSeqs = new Set();
+
+    this.seen = new Set();
+    this.pendingAcks = [];
+    this.ackTimer = null;
+    this.previousDelay = RECONNECT_BASE_MS;
+  }
+
+  connect() {
+    this.registered = false;
+    const ws = new WebSocket(this.url, { perMessageDeflate: true });
+    this.ws = ws;
+
+    ws.on('open', () => {
+      this.previousDelay = RECONNECT_BASE_MS;
+      const register = {
+        type: 'register',
+        deviceId: this.deviceId,
+        token: this.token,
+        encodings: options.json ? [] : ['msgpack'],
+        dictionaries: [frameDictionary.DICTIONARY_VERSION]
+      };
+      if (this.epoch) {
+        register.epoch = this.epoch;
+        register.lastSeq = this.lastSeq;
+      }
+      ws.send(JSON.stringify(register));
+      this._flushAcks();
+    });
+
+    ws.on('message', (data, isBinary) => {
+      this.stats.bytesIn += data.length;
+      try {
+        this._onFrame(this._decode(data, isBinary));
+      } catch (error) {
+        this.stats.errors++;
+      }
+    });
+
+    ws.on('close', () => {
+      this.registered = false;
+      if (!this.stopped) {
+        this._scheduleReconnect();
+      }
+    });
+
+    ws.on('error', () => {
+      this.stats.errors++;
+    });
+  }
+
+  stop() {
+    this.stopped = true;
+    clearTimeout(this.ackTimer);
+    if (this.ws) {
+      this.ws.terminate();
+    }
+  }
+
+  _decode(data, isBinary) {
+    if (!isBinary) {
+      return JSON.parse(data.toString());
+    }
+    const raw = frameDictionary.isCompressed(data) ? frameDictionary.decompress(data) : data;
+    return this.encoding === 'msgpack' && raw[0] !== 0x7b // '{' - сжатый JSON до согласования
+      ? msgpack.decode(raw)
+      : JSON.parse(raw.toString());
+  }
+
+  _onFrame(message) {
+    switch (message.type) {
+      case 'registered':
+        this.encoding = message.encoding || 'json';
+        if (message.epoch !== this.epoch) {
+          this.epoch = message.epoch;
+          this.lastSeq = 0;
+          this.ackedSeqs.clear();
+        }
+        if (message.minSeq - 1 > this.lastSeq) {
+          this.lastSeq = message.minSeq - 1;
+        }
+        this._advance();
+        this.registered = true;
+        this.stats.registrations++;
+        break;
+
+      case 'notification':
+        this.stats.received++;
+        if (this.seen.has(message.id)) {
+          this.stats.resent++;
+        } else {
+          this.seen.add(message.id);
+        }
+        // Как SDK: подтверждаем и дубликаты, иначе сервер будет их досылать
+        this.pendingAcks.push(message.id);
+        if (message.seq > this.lastSeq) {
+          this.ackedSeqs.add(message.seq);
+          this._advance();
+        }
+        if (!this.ackTimer) {
+          this.ackTimer = setTimeout(() => this._flushAcks(), ACK_FLUSH_MS);
+        }
+        break;
+    }
+  }
+
+  _advance() {
+    while (this.ackedSeqs.has(this.lastSeq + 1)) {
+      this.ackedSeqs.delete(this.lastSeq + 1);
+      this.lastSeq++;
+    }
+  }
+
+  _flushAcks() {
+    clearTimeout(this.ackTimer);
+    this.ackTimer = null;
+    if (this.pendingAcks.length === 0 || !this.ws || this.ws.readyState !== WebSocket.OPEN) {
+      return;
+    }
+    const batch = { type: 'ack_batch', ids: this.pendingAcks };
+    const frame = this.encoding === 'msgpack' ? msgpack.encode(batch) : JSON.stringify(batch);
+    this.ws.send(frame);
+    this.stats.bytesOut += Buffer.byteLength(frame);
+    this.pendingAcks = [];
+  }
+
+  _scheduleReconnect() {
+    // Decorrelated jitter, как ReconnectScheduler в SDK
+    const upper = Math.min(RECONNECT_MAX_MS, this.previousDelay * 3);
+    const delay = RECONNECT_BASE_MS + Math.random() * Math.max(0, upper - RECONNECT_BASE_MS);
+    this.previousDelay = delay;
+    this.stats.reconnects++;
+    setTimeout(() => {
+      if (!this.stopped) {
+        this.connect();
+      }
+    }, delay);
+  }
+}
+
+async function main() {
+  const server = http.createServer();
+  androidPushProvider.initialize(server);
+  await new Promise(resolve => server.listen(0, '127.0.0.1', resolve));
+  const url = `ws://127.0.0.1:${server.address().port}/ws/android`;
+
+  const stats = {
+    registrations: 0,
+    received: 0,
+    resent: 0,
+    reconnects: 0,
+    errors: 0,
+    bytesIn: 0,
+    bytesOut: 0
+  };
+  const clients = [];
+  const devices = [];
+  let sentToEach = 0;
+
+  log(`Soak: ${options.clients} клиентов, ${options.messages} уведомлений, ${options.storms} обрывов` +
+    `, кодировка ${options.json ? 'json' : 'msgpack'}`);
+
+  // 1. Подключение
+  const memoryBefore = memory();
+  let started = Date.now();
+  for (let i = 0; i < options.clients; i++) {
+    const client = new SoakClient(url, i, stats);
+    clients.push(client);
+    devices.push({ id: client.deviceId });
+    client.connect();
+    // Небольшими порциями, чтобы не упереться в backlog accept()
+    if (i % 200 === 199) {
+      await sleep(10);
+    }
+  }
+  await waitFor(() => clients.every(c => c.registered), 'подключение');
+  const memoryAfter = memory();
+  log(`Подключение: ${Date.now() - started} мс, ` +
+    `память на соединение (клиент + сервер): heap ${perConnection(memoryAfter.heapUsed - memoryBefore.heapUsed)}, ` +
+    `rss ${perConnection(memoryAfter.rss - memoryBefore.rss)}`);
+
+  // 2. Пропускная способность
+  started = Date.now();
+  for (let round = 0; round < options.messages; round++) {
+    androidPushProvider.sendBatch(devices, payload(`tp-${round}`));
+  }
+  sentToEach += options.messages;
+  await waitFor(() => delivered() >= options.clients * sentToEach, 'доставка');
+  const deliveryMs = Date.now() - started;
+  await waitFor(() => pendingOnServer() === 0, 'подтверждения');
+  const total = options.clients * options.messages;
+  log(`Доставка: ${total} уведомлений за ${deliveryMs} мс (${rate(total, deliveryMs)}/с), ` +
+    `очередь ACK пуста через ${Date.now() - started} мс`);
+
+  // 3. Обрывы соединений и досылка
+  for (let storm = 1; storm <= options.storms; storm++) {
+    const reconnectsBefore = stats.reconnects;
+    started = Date.now();
+
+    for (const ws of androidPushProvider.wss.clients) {
+      ws.terminate();
+    }
+    // Уведомления уходят пока устройства офлайн или только переподключаются
+    for (let round = 0; round < options.offline; round++) {
+      androidPushProvider.sendBatch(devices, payload(`storm-${storm}-${round}`));
+      await sleep(20);
+    }
+    sentToEach += options.offline;
+
+    await waitFor(() => clients.every(c => c.registered), 'переподключение');
+    const reconnectMs = Date.now() - started;
+    await waitFor(() => delivered() >= options.clients * sentToEach, 'досылка');
+    await waitFor(() => pendingOnServer() === 0, 'подтверждения');
+
+    log(`Обрыв ${storm}: переподключение ${reconnectMs} мс ` +
+      `(${stats.reconnects - reconnectsBefore} попыток), досылка ${Date.now() - started} мс`);
+  }
+
+  // Итог
+  const missing = clients.reduce((sum, c) => sum + Math.max(0, sentToEach - c.seen.size), 0);
+  log(`Итог: получено ${stats.received}, повторов ${stats.resent}, потеряно ${missing}, ` +
+    `ошибок ${stats.errors}, трафик к клиентам ${kb(stats.bytesIn)}, от клиентов ${kb(stats.bytesOut)}`);
+  const failed = missing > 0;
+
+  for (const client of clients) {
+    client.stop();
+  }
+  androidPushProvider.shutdown();
+  server.close();
+  process.exit(failed ? 1 : 0);
+
+  function delivered() {
+    return clients.reduce((sum, c) => sum + c.seen.size, 0);
+  }
+}
+
+function payload(id) {
+  return {
+    notificationId: id,
+    title: 'Soak',
+    body: `Уведомление ${id}`,
+    url: 'https://example.com/soak',
+    data: { soak: true }
+  };
+}
+
+function pendingOnServer() {
+  let count = 0;
+  for (const pending of androidPushProvider.pendingMessages.values()) {
+    count += pending.length;
+  }
+  return count;
+}
+
+async function waitFor(predicate, stage) {
+  const deadline = Date.now() + WAIT_TIMEOUT_MS;
+  while (!predicate()) {
+    if (Date.now() > deadline) {
+      log(`Таймаут этапа: ${stage}`);
+      process.exit(1);
+    }
+    await sleep(50);
+  }
+}
+
+function memory() {
+  if (global.gc) {
+    global.gc();
+  }
+  return process.memoryUsage();
+}
+
+function perConnection(bytes) {
+  return `${(bytes / options.clients / 1024).toFixed(1)} КБ`;
+}
+
+function rate(count, ms) {
+  return Math.round(count / Math.max(ms, 1) * 1000);
+}
+
+function kb(bytes) {
+  return `${Math.round(bytes / 1024)} КБ`;
+}
+
+function sleep(ms) {
+  return new Promise(resolve => setTimeout(resolve, ms));
+}
+
+function parseArgs(args) {
+  const result = {
+    clients: 500,
+    messages: 20,
+    offline: 5,
+    storms: 3,
+    json: false,
+    verbose: false
+  };
+  for (let i = 0; i < args.length; i++) {
+    const name = args[i].replace(/^--/, '');
+    if (name === 'json' || name === 'verbose') {
+      result[name] = true;
+    } else if (name in result) {
+      result[name] = parseInt(args[++i], 10);
+    }
+  }
+  return result;
+}
+
+main().catch(error => {
+  log(`Ошибка прогона: ${error.stack || error.message}`);
+  process.exit(1);
+});
@@ -1,5 +1,45 @@
+const crypto = require('crypto');
 const WebSocket = require('ws');
 const { v4: uuidv4 } = require('uuid');
+const msgpack = require('./msgpack');
+const frameDictionary = require('./frame-dictionary');
+const deviceService = require('../services/device.service');
+
+// Поддерживаемые кодировки фреймов (JSON используется всегда как запасной вариант)
+const ENCODING_JSON = 'json';
+const ENCODING_MSGPACK = 'msgpack';
+
+// Фреймы от этого размера сжимает permessage-deflate, меньшие - словарь
+const DEFLATE_THRESHOLD = 1024;
+
+// Окно, в которое устройства возвращаются после перезапуска сервера (секунды)
+const RESTART_RETRY_MIN_S = 5;
+const RESTART_RETRY_SPREAD_S = 55;
+
+// Кто отправляет heartbeat: сервер (старые SDK) или клиент с адаптивным интервалом
+const HEARTBEAT_SERVER = 'server';
+const HEARTBEAT_CLIENT = 'client';
+// Один таймер на все соединения вместо таймера на каждое
+const SWEEP_INTERVAL_MS = 30000;
+// Клиентский heartbeat не реже, чем раз в 15 минут; тишина дольше - соединение мёртвое
+const CLIENT_IDLE_TIMEOUT_S = 16 * 60;
+
+// Срок жизни сообщения, если в payload не указан ttl (секунды)
+const DEFAULT_TTL_S = 24 * 60 * 60;
+
+// Шаблоны кампаний: рассылка от этого числа устройств отправляет контент один раз на соединение
+const TEMPLATE_MIN_DEVICES = 2;
+// Сколько шаблонов хранится для догрузки SDK (вытесняются самые старые)
+const MAX_TEMPLATES = 1000;
+// Столько шаблонов держит TemplateCache в SDK - вытесненный отправляется заново
+const CONNECTION_TEMPLATES = 32;
+// Переменная шаблона: имя - всё между {{ и ближайшими }}, как в TemplateCache.substitute
+const TEMPLATE_VARIABLE = /\{\{([\s\S]*?)\}\}/g;
+// Поля уведомления, которые переносит шаблон
+const TEMPLATE_FIELDS = ['title', 'body', 'icon', 'image', 'url', 'data', 'channelId', 'group'];
+
+// Сколько дополнительных приложений SDK может подключить к одному соединению
+const MAX_APPS_PER_CONNECTION = 16;
 
 class AndroidPushProvider {
   constructor() {
@@ -8,6 +48,11 @@ class AndroidPushProvider {
     this.deviceTokens = new Map(); // token -> deviceId
     this.initialized = false;
     this.pendingMessages = new Map(); // deviceId -> Array of pending messages
+    this.sequences = new Map(); // deviceId -> последний выданный seq
+    this.pollWaiters = new Map(); // deviceId -> Set ожидающих long-poll запросов
+    this.templates = new Map(); // templateId -> шаблон кампании (в порядке использования)
+    // Эпоха сессий: seq сбрасываются при перезапуске, SDK сверяет эпоху
+    this.sessionEpoch = uuidv4();
   }
   
   /**
@@ -17,60 +62,153 @@ class AndroidPushProvider {
   initialize(server) {
     this.wss = new WebSocket.Server({ 
       server,
-      path: '/ws/android'
+      path: '/ws/android',
+      // Сжатие с ограниченным контекстом: окно 2 КБ и memLevel 4
+      // держат память deflate на соединение в пределах ~16 КБ,
+      // а без client context takeover не хранится контекст inflate
+      perMessageDeflate: {
+        zlibDeflateOptions: {
+          level: 6,
+          memLevel: 4
+        },
+        serverMaxWindowBits: 11,
+        clientNoContextTakeover: true,
+        threshold: DEFLATE_THRESHOLD,
+        concurrencyLimit: 10
+      }
     });
     
     this.wss.on('connection', (ws, req) => {
       console.log('Android: Новое WebSocket подключение');
       
       let deviceId = null;
-      let heartbeatInterval = null;
       
-      // Heartbeat для поддержания соединения
-      const startHeartbeat = () => {
-        heartbeatInterval = setInterval(() => {
-          if (ws.readyState === WebSocket.OPEN) {
-            ws.ping();
-          }
-        }, 30000); // Пинг каждые 30 секунд
-      };
+      // До согласования в register общаемся JSON, пингует сервер
+      ws.encoding = ENCODING_JSON;
+      ws.heartbeat = HEARTBEAT_SERVER;
+      ws.lastSeen = Date.now();
+      // Шаблоны в кэше SDK: templateId -> version в порядке LRU (null - SDK их не поддерживает)
+      ws.templates = null;
+      // Основное устройство соединения и устройства дополнительных приложений
+      ws.deviceId = null;
+      ws.apps = null;
       
-      ws.on('message', (data) => {
+      ws.on('message', (data, isBinary) => {
+        ws.lastSeen = Date.now();
         try {
-          const message = JSON.parse(data.toString());
+          const message = isBinary ? msgpack.decode(data) : JSON.parse(data.toString());
           
           switch (message.type) {
             case 'register':
               // Регистрация устройства
-              deviceId = message.deviceId;
               const token = message.token;
               
+              // Одно соединение на устройство: старое закрываем, его close не удалит новое
+              const previous = this.connections.get(message.deviceId);
+              if (previous && previous !== ws && previous.readyState === WebSocket.OPEN) {
+                // Знающий только deviceId не должен отключать настоящее устройство
+                if (token !== previous.token && !this._ownsDevice(message.deviceId, token)) {
+                  console.warn(`Android: ${message.deviceId} - повторное соединение отклонено, токен не совпал`);
+                  ws.close(1008, 'token mismatch');
+                  break;
+                }
+                console.log(`Android: Повторное соединение ${message.deviceId}, старое закрыто`);
+                previous.close(1000, 'replaced');
+              }
+              
+              deviceId = message.deviceId;
+              ws.deviceId = deviceId;
+              ws.token = token;
+              
               // Сохраняем соединение
               this.connections.set(deviceId, ws);
               this.deviceTokens.set(token, deviceId);
               
+              // Бинарный формат, если SDK его поддерживает
+              const encodings = Array.isArray(message.encodings) ? message.encodings : [];
+              const encoding = encodings.includes(ENCODING_MSGPACK) ? ENCODING_MSGPACK : ENCODING_JSON;
+              
+              // Словарь для маленьких фреймов, если у SDK та же версия
+              const dictionaries = Array.isArray(message.dictionaries) ? message.dictionaries : [];
+              const useDictionary = dictionaries.includes(frameDictionary.DICTIONARY_VERSION);
+              
+              // SDK с адаптивным heartbeat пингует сам, сервер только следит за тишиной
+              const heartbeat = message.heartbeat === HEARTBEAT_CLIENT ? HEARTBEAT_CLIENT : HEARTBEAT_SERVER;
+              
+              // SDK с кэшем шаблонов сообщает, какие шаблоны у него уже есть
+              ws.templates = Array.isArray(message.templates)
+                ? this._templateKeys(message.templates)
+                : null;
+              
+              // Возобновление сессии: всё до lastSeq устройство уже обработало
+              if (message.epoch === this.sessionEpoch && Number.isInteger(message.lastSeq)) {
+                this._prunePendingMessages(deviceId, message.lastSeq);
+              }
+              
+              // Ответ всегда в JSON - SDK узнаёт из него о выбранной кодировке
               ws.send(JSON.stringify({
                 type: 'registered',
                 deviceId: deviceId,
+                encoding,
+                dictionary: useDictionary ? frameDictionary.DICTIONARY_VERSION : null,
+                epoch: this.sessionEpoch,
+                minSeq: this._minPendingSeq(deviceId),
+                heartbeat,
+                idleTimeout: heartbeat === HEARTBEAT_CLIENT ? CLIENT_IDLE_TIMEOUT_S : undefined,
                 timestamp: new Date().toISOString()
               }));
+              ws.encoding = encoding;
+              ws.useDictionary = useDictionary;
+              ws.heartbeat = heartbeat;
               
               console.log(`Android: Устройство зарегистрировано: ${deviceId}`);
               
               // Отправляем накопленные сообщения
               this._sendPendingMessages(deviceId, ws);
               
-              startHeartbeat();
+              // Другие приложения того же процесса получают уведомления через это соединение
+              this._attachApps(ws, message.apps);
+              break;
+              
+            case 'apps':
+              // Приложение зарегистрировано после подключения
+              this._attachApps(ws, message.apps);
               break;
               
             case 'ack':
               // Подтверждение получения уведомления
-              this._handleAck(message.notificationId, deviceId);
+              this._handleAck(message.notificationId, this._messageDevice(ws, message.notificationId));
               break;
               
             case 'click':
               // Клик по уведомлению
-              this._handleClick(message.notificationId, deviceId);
+              this._handleClick(message.notificationId, this._messageDevice(ws, message.notificationId));
+              break;
+              
+            case 'ack_batch':
+              // Пакет подтверждений и кликов от SDK
+              for (const id of message.ids || []) {
+                this._handleAck(id, this._messageDevice(ws, id));
+              }
+              for (const id of message.clicks || []) {
+                this._handleClick(id, this._messageDevice(ws, id));
+              }
+              // Получены после истечения срока и не показаны - больше не досылаем
+              for (const id of message.expired || []) {
+                this._handleExpired(id, this._messageDevice(ws, id));
+              }
+              if (message.expired && message.expired.length > 0) {
+                console.log(`Android: ${deviceId} отбросил ${message.expired.length} просроченных сообщений`);
+              }
+              // SDK с включёнными метриками замеряет круговую задержку ACK
+              if (message.sentAt !== undefined) {
+                ws.send(this._encodeFrame(ws, { type: 'acked', sentAt: message.sentAt }));
+              }
+              break;
+              
+            case 'ping':
+              // Heartbeat клиента
+              ws.send(this._encodeFrame(ws, { type: 'pong' }));
               break;
               
             case 'pong':
@@ -84,11 +222,11 @@ class AndroidPushProvider {
       
       ws.on('close', () => {
         console.log(`Android: Соединение закрыто: ${deviceId}`);
-        if (deviceId) {
-          this.connections.delete(deviceId);
-        }
-        if (heartbeatInterval) {
-          clearInterval(heartbeatInterval);
+        // Устройство могло уже переподключиться - не удаляем новое соединение
+        for (const id of [deviceId, ...(ws.apps || [])]) {
+          if (id && this.connections.get(id) === ws) {
+            this.connections.delete(id);
+          }
         }
       });
       
@@ -98,9 +236,13 @@ class AndroidPushProvider {
       
       ws.on('pong', () => {
         // Устройство живо
+        ws.lastSeen = Date.now();
       });
     });
     
+    this.sweepInterval = setInterval(() => this._sweepConnections(), SWEEP_INTERVAL_MS);
+    this.sweepInterval.unref();
+    
     this.initialized = true;
     console.log('✓ Android Push (WebSocket) инициализирован');
     return true;
@@ -110,9 +252,11 @@ class AndroidPushProvider {
    * Отправка уведомления на Android устройство
    * @param {string} deviceId - ID устройства
    * @param {Object} payload - Данные уведомления
+   * @param {Object} [template] - Шаблон кампании (для рассылок)
+   * @param {Object} [vars] - Переменные устройства для шаблона
    * @returns {Object} - Результат отправки
    */
-  send(deviceId, payload) {
+  send(deviceId, payload, template = null, vars = null) {
     const ws = this.connections.get(deviceId);
     
     const message = {
@@ -126,12 +270,30 @@ class AndroidPushProvider {
       data: payload.data || {},
       priority: payload.priority || 'high',
       channelId: payload.channelId || 'default',
-      timestamp: new Date().toISOString()
+      // Ключ группировки на устройстве (по умолчанию - канал)
+      group: payload.group || payload.tag,
+      timestamp: new Date().toISOString(),
+      // SDK не показывает сообщения, полученные после этого времени
+      expiresAt: this._expiresAt(payload.ttl)
     };
     
+    if (template) {
+      // Полный контент остаётся в очереди для опроса и старых SDK
+      Object.assign(message, this._renderTemplate(template, vars));
+      message.templateId = template.id;
+      message.templateVersion = template.version;
+      if (vars) {
+        message.vars = vars;
+      }
+    }
+    
+    // Сообщение остаётся в очереди до ACK - при обрыве до подтверждения
+    // оно будет дослано после переподключения
+    this._addPendingMessage(deviceId, message);
+    
     if (ws && ws.readyState === WebSocket.OPEN) {
       try {
-        ws.send(JSON.stringify(message));
+        ws.send(this._encodeFrame(ws, this._wireMessage(ws, message, deviceId)));
         console.log(`[ANDROID] Sent via WebSocket to ${deviceId}`);
         return {
           success: true,
@@ -147,8 +309,7 @@ class AndroidPushProvider {
         };
       }
     } else {
-      // Устройство не подключено - сохраняем сообщение для доставки позже
-      this._addPendingMessage(deviceId, message);
+      // Устройство не подключено - сообщение доставится позже
       console.log(`[ANDROID] Queued for polling: ${deviceId}, queue size: ${this.pendingMessages.get(deviceId)?.length || 0}`);
       
       return {
@@ -177,8 +338,14 @@ class AndroidPushProvider {
       errors: []
     };
     
+    // Контент рассылки уходит на устройство, только если шаблона нет в его кэше
+    const template = devices.length >= TEMPLATE_MIN_DEVICES && payload.appId
+      ? this._registerTemplate(payload)
+      : null;
+    
     for (const device of devices) {
-      const result = this.send(device.id, payload);
+      const vars = template ? this._deviceVariables(payload, device) : null;
+      const result = this.send(device.id, payload, template, vars);
       
       if (result.success) {
         if (result.delivered) {
@@ -200,6 +367,47 @@ class AndroidPushProvider {
     return results;
   }
   
+  /**
+   * Предзагрузка медиа на онлайн устройства перед запланированной кампанией
+   * Офлайн устройствам ничего не ставится в очередь - изображение
+   * будет загружено вместе с уведомлением
+   * @param {Array<Object>} devices - Массив устройств
+   * @param {Array<string>} urls - URL изображений
+   * @returns {number} - Количество устройств, получивших запрос
+   */
+  prefetchBatch(devices, urls) {
+    const validUrls = urls.filter(Boolean);
+    if (validUrls.length === 0) return 0;
+    
+    const message = {
+      type: 'prefetch',
+      urls: validUrls
+    };
+    // Кодируем один раз для каждого формата
+    const frames = {};
+    // Приложения одного процесса делят соединение - предзагрузка нужна ему один раз
+    const sockets = new Set();
+    
+    let sent = 0;
+    for (const device of devices) {
+      const ws = this.connections.get(device.id);
+      if (ws && ws.readyState === WebSocket.OPEN && !sockets.has(ws)) {
+        sockets.add(ws);
+        try {
+          if (!frames[ws.encoding]) {
+            frames[ws.encoding] = this._encodeFrame(ws, message);
+          }
+          ws.send(frames[ws.encoding]);
+          sent++;
+        } catch (error) {
+          console.error(`Android: Ошибка отправки prefetch на ${device.id}:`, error.message);
+        }
+      }
+    }
+    
+    return sent;
+  }
+  
   /**
    * Проверка онлайн статуса устройства
    */
@@ -235,6 +443,8 @@ class AndroidPushProvider {
     return {
       totalConnections: this.connections.size,
       onlineConnections: online,
+      // Сокеты: несколько приложений одного процесса делят одно соединение
+      sockets: this.wss ? this.wss.clients.size : 0,
       pendingMessages: this.pendingMessages.size
     };
   }
@@ -254,13 +464,95 @@ class AndroidPushProvider {
       pending.shift(); // Удаляем самое старое
     }
     
-    // Добавляем TTL - 24 часа
-    message.expiresAt = Date.now() + 24 * 60 * 60 * 1000;
+    if (!message.expiresAt) {
+      message.expiresAt = this._expiresAt();
+    }
+    message.seq = this._nextSeq(deviceId);
     pending.push(message);
+    
+    this._wakePollWaiters(deviceId);
+  }
+  
+  /**
+   * Ожидание новых сообщений для long-poll запроса
+   * Промис разрешается при появлении сообщения или по таймауту
+   */
+  waitForMessages(deviceId, timeoutMs) {
+    return new Promise(resolve => {
+      if (!this.pollWaiters.has(deviceId)) {
+        this.pollWaiters.set(deviceId, new Set());
+      }
+      const waiters = this.pollWaiters.get(deviceId);
+      
+      const done = () => {
+        clearTimeout(timer);
+        waiters.delete(done);
+        if (waiters.size === 0 && this.pollWaiters.get(deviceId) === waiters) {
+          this.pollWaiters.delete(deviceId);
+        }
+        resolve();
+      };
+      const timer = setTimeout(done, timeoutMs);
+      waiters.add(done);
+    });
+  }
+  
+  _wakePollWaiters(deviceId) {
+    const waiters = this.pollWaiters.get(deviceId);
+    if (!waiters) return;
+    
+    for (const done of [...waiters]) {
+      done();
+    }
+  }
+  
+  /**
+   * Время истечения сообщения по ttl из payload (секунды)
+   */
+  _expiresAt(ttl) {
+    const seconds = Number(ttl) > 0 ? Number(ttl) : DEFAULT_TTL_S;
+    return Date.now() + seconds * 1000;
+  }
+  
+  /**
+   * Следующий номер сообщения для устройства
+   */
+  _nextSeq(deviceId) {
+    const seq = (this.sequences.get(deviceId) || 0) + 1;
+    this.sequences.set(deviceId, seq);
+    return seq;
+  }
+  
+  /**
+   * Наименьший seq, который сервер ещё может прислать
+   * Всё, что ниже, устройство может считать полученным
+   */
+  _minPendingSeq(deviceId) {
+    const pending = this.pendingMessages.get(deviceId);
+    if (pending && pending.length > 0) {
+      return pending[0].seq;
+    }
+    return (this.sequences.get(deviceId) || 0) + 1;
+  }
+  
+  /**
+   * Удаление сообщений, обработанных устройством (seq <= lastSeq)
+   */
+  _prunePendingMessages(deviceId, lastSeq) {
+    const pending = this.pendingMessages.get(deviceId);
+    if (!pending) return;
+    
+    const remaining = pending.filter(m => m.seq > lastSeq);
+    if (remaining.length === 0) {
+      this.pendingMessages.delete(deviceId);
+    } else {
+      this.pendingMessages.set(deviceId, remaining);
+    }
   }
   
   /**
    * Отправка накопленных сообщений
+   * Очередь не очищается: сообщения удаляются по ACK
    */
   _sendPendingMessages(deviceId, ws) {
     const pending = this.pendingMessages.get(deviceId);
@@ -268,31 +560,330 @@ class AndroidPushProvider {
     
     const now = Date.now();
     const validMessages = pending.filter(m => m.expiresAt > now);
+    if (validMessages.length === 0) {
+      this.pendingMessages.delete(deviceId);
+      return;
+    }
+    this.pendingMessages.set(deviceId, validMessages);
     
     for (const message of validMessages) {
       try {
-        ws.send(JSON.stringify(message));
+        ws.send(this._encodeFrame(ws, this._wireMessage(ws, message, deviceId)));
       } catch (error) {
         console.error('Android: Ошибка отправки отложенного сообщения:', error);
       }
     }
     
-    // Очищаем очередь
-    this.pendingMessages.delete(deviceId);
+    console.log(`Android: Отправлено ${validMessages.length} отложенных сообщений на ${deviceId}`);
+  }
+  
+  /**
+   * Остановка: закрываем соединения с подсказкой retry-after
+   * Каждое устройство получает своё случайное время возврата,
+   * чтобы после перезапуска не было волны одновременных подключений
+   */
+  shutdown() {
+    if (!this.wss) return;
+    
+    for (const ws of this.wss.clients) {
+      const retryAfter = RESTART_RETRY_MIN_S + Math.floor(Math.random() * RESTART_RETRY_SPREAD_S);
+      try {
+        // 1012 - Service Restart
+        ws.close(1012, `retry-after=${retryAfter}`);
+      } catch (error) {
+        ws.terminate();
+      }
+    }
     
-    if (validMessages.length > 0) {
-      console.log(`Android: Отправлено ${validMessages.length} отложенных сообщений на ${deviceId}`);
+    clearInterval(this.sweepInterval);
+    for (const deviceId of [...this.pollWaiters.keys()]) {
+      this._wakePollWaiters(deviceId);
+    }
+    this.wss.close();
+    this.initialized = false;
+  }
+  
+  /**
+   * Обход соединений: пинг для старых SDK, закрытие молчащих клиентов
+   */
+  _sweepConnections() {
+    const now = Date.now();
+    for (const ws of this.wss.clients) {
+      if (ws.heartbeat === HEARTBEAT_CLIENT) {
+        if (now - ws.lastSeen > CLIENT_IDLE_TIMEOUT_S * 1000) {
+          ws.terminate();
+        }
+      } else if (ws.readyState === WebSocket.OPEN) {
+        ws.ping();
+      }
     }
   }
   
+  /**
+   * Кодирование фрейма в формате, согласованном с устройством
+   * @returns {string|Buffer} - JSON строка или MessagePack
+   */
+  _encodeFrame(ws, message) {
+    const frame = ws.encoding === ENCODING_MSGPACK
+      ? msgpack.encode(message)
+      : JSON.stringify(message);
+    
+    // Маленькие фреймы сжимаем словарём, большие оставляем permessage-deflate
+    if (ws.useDictionary && Buffer.byteLength(frame) < DEFLATE_THRESHOLD) {
+      const compressed = frameDictionary.compress(frame);
+      if (compressed) {
+        return compressed;
+      }
+    }
+    
+    return frame;
+  }
+  
+  /**
+   * Шаблон кампании
+   * id - ключ кампании (payload.templateId) или сам контент в пределах
+   * приложения, поэтому повторные рассылки используют тот же шаблон;
+   * version - хэш контента, изменённая кампания получает новую версию.
+   * Переменные в полях записываются как {{name}}
+   */
+  _registerTemplate(payload) {
+    const content = {};
+    for (const field of TEMPLATE_FIELDS) {
+      content[field] = payload[field];
+    }
+    content.data = payload.data || {};
+    content.channelId = payload.channelId || 'default';
+    content.group = payload.group || payload.tag;
+    
+    const contentJson = JSON.stringify(content);
+    const hash = value => crypto.createHash('sha1').update(value).digest('hex');
+    const id = hash(`${payload.appId}:${payload.templateId || contentJson}`).slice(0, 16);
+    const version = parseInt(hash(contentJson).slice(0, 8), 16);
+    const template = { id, version, appId: payload.appId, ...content };
+    
+    // Map хранит порядок вставки - переставляем шаблон в конец и вытесняем старые
+    this.templates.delete(template.id);
+    this.templates.set(template.id, template);
+    while (this.templates.size > MAX_TEMPLATES) {
+      this.templates.delete(this.templates.keys().next().value);
+    }
+    return template;
+  }
+  
+  /**
+   * Шаблон для догрузки SDK, у которого его нет в кэше
+   */
+  getTemplate(templateId) {
+    return this.templates.get(templateId) || null;
+  }
+  
+  /**
+   * Переменные устройства из payload.variables (по userId или deviceId)
+   */
+  _deviceVariables(payload, device) {
+    const variables = payload.variables;
+    if (!variables || typeof variables !== 'object') return null;
+    return variables[device.id] || (device.userId && variables[device.userId]) || null;
+  }
+  
+  /**
+   * Полный контент уведомления из шаблона - для очереди опроса
+   */
+  _renderTemplate(template, vars) {
+    const values = vars || {};
+    const substitute = value => typeof value === 'string'
+      ? value.replace(TEMPLATE_VARIABLE, (match, name) => values[name] != null ? String(values[name]) : '')
+      : value;
+    
+    return {
+      title: substitute(template.title),
+      body: substitute(template.body),
+      icon: template.icon,
+      image: substitute(template.image),
+      url: substitute(template.url),
+      data: template.data,
+      channelId: template.channelId,
+      group: template.group
+    };
+  }
+  
+  /**
+   * Фрейм уведомления для соединения
+   * Уведомление дополнительного приложения помечается его устройством
+   */
+  _wireMessage(ws, message, deviceId) {
+    const frame = this._templateFrame(ws, message);
+    return deviceId && deviceId !== ws.deviceId ? { ...frame, device: deviceId } : frame;
+  }
+  
+  /**
+   * SDK с кэшем шаблонов получает контент кампании только в первом фрейме,
+   * дальше - templateId и переменные устройства
+   */
+  _templateFrame(ws, message) {
+    if (!message.templateId) return message;
+    
+    const { templateId, templateVersion, vars, ...full } = message;
+    const template = this.templates.get(templateId);
+    
+    // Старый SDK или шаблон уже вытеснен - полный контент без полей шаблона
+    const known = ws.templates && ws.templates.get(templateId) === templateVersion;
+    if (!ws.templates || (!known && (!template || template.version !== templateVersion))) {
+      return full;
+    }
+    
+    const frame = {};
+    for (const [field, value] of Object.entries(message)) {
+      if (!TEMPLATE_FIELDS.includes(field)) {
+        frame[field] = value;
+      }
+    }
+    if (!known) {
+      const { id, version, appId, ...content } = template;
+      frame.template = content;
+    }
+    this._touchTemplate(ws.templates, templateId, templateVersion);
+    return frame;
+  }
+  
+  /**
+   * Шаблоны из register ("id:version", от давних к свежим)
+   */
+  _templateKeys(keys) {
+    const known = new Map();
+    for (const key of keys) {
+      if (typeof key !== 'string') continue;
+      const separator = key.lastIndexOf(':');
+      const version = Number(key.slice(separator + 1));
+      if (separator > 0 && Number.isFinite(version)) {
+        this._touchTemplate(known, key.slice(0, separator), version);
+      }
+    }
+    return known;
+  }
+  
+  /**
+   * Повторяет LRU TemplateCache: обращение делает шаблон свежим,
+   * новая версия занимает место старой, лишние вытесняются
+   */
+  _touchTemplate(known, templateId, version) {
+    known.delete(templateId);
+    known.set(templateId, version);
+    while (known.size > CONNECTION_TEMPLATES) {
+      known.delete(known.keys().next().value);
+    }
+  }
+  
+  /**
+   * Дополнительные приложения в соединении SDK
+   * White-label сборки и модули одного процесса - отдельные устройства
+   * своих приложений; их уведомления идут в то же соединение с полем device
+   * Подключается только устройство, чей токен знает SDK: иначе чужой фрейм
+   * закрыл бы настоящее соединение устройства и забрал его очередь
+   * @param {Array<Object>} apps - [{ deviceId, token }]
+   */
+  _attachApps(ws, apps) {
+    if (!Array.isArray(apps) || !ws.deviceId) return;
+    
+    // Подключать другие приложения может только зарегистрированное Android устройство
+    if (!this._ownsDevice(ws.deviceId, ws.token)) {
+      console.warn(`Android: ${ws.deviceId} не может подключать приложения - устройство не подтверждено`);
+      return;
+    }
+    if (!ws.apps) {
+      ws.apps = new Set();
+    }
+    
+    for (const app of apps) {
+      if (!app || typeof app.deviceId !== 'string' || app.deviceId === ws.deviceId || ws.apps.has(app.deviceId)) {
+        continue;
+      }
+      if (!this._ownsDevice(app.deviceId, app.token)) {
+        console.warn(`Android: ${ws.deviceId} - отклонено приложение ${app.deviceId}, токен не совпал`);
+        continue;
+      }
+      if (ws.apps.size >= MAX_APPS_PER_CONNECTION) {
+        console.warn(`Android: ${ws.deviceId} превысил лимит приложений в соединении`);
+        break;
+      }
+      
+      // Отдельное соединение этого приложения больше не нужно
+      const previous = this.connections.get(app.deviceId);
+      if (previous && previous !== ws && previous.deviceId === app.deviceId && previous.readyState === WebSocket.OPEN) {
+        previous.close(1000, 'replaced');
+      }
+      
+      this.connections.set(app.deviceId, ws);
+      this.deviceTokens.set(app.token, app.deviceId);
+      ws.apps.add(app.deviceId);
+      this._sendPendingMessages(app.deviceId, ws);
+    }
+    
+    console.log(`Android: ${ws.deviceId} - приложений в соединении: ${ws.apps.size + 1}`);
+  }
+  
+  /**
+   * Токен подтверждает право на активное Android устройство
+   */
+  _ownsDevice(deviceId, token) {
+    if (typeof token !== 'string' || token.length === 0) return false;
+    try {
+      const device = deviceService.getById(deviceId);
+      return Boolean(device && device.platform === 'android' && device.isActive && device.token === token);
+    } catch (error) {
+      console.error('Android: Ошибка проверки устройства:', error.message);
+      return false;
+    }
+  }
+  
+  /**
+   * Устройство, которому принадлежит сообщение
+   * ACK приходят без устройства - в соединении с несколькими приложениями ищем по очередям
+   */
+  _messageDevice(ws, notificationId) {
+    if (ws.apps) {
+      for (const appDeviceId of ws.apps) {
+        const pending = this.pendingMessages.get(appDeviceId);
+        if (pending && pending.some(m => m.id === notificationId)) {
+          return appDeviceId;
+        }
+      }
+    }
+    return ws.deviceId;
+  }
+  
   /**
    * Обработка подтверждения получения
    */
   _handleAck(notificationId, deviceId) {
+    // Подтверждённое сообщение больше не нужно досылать
+    this._removePending(notificationId, deviceId);
+    
     // Можно добавить логику обновления статуса доставки в БД
     console.log(`Android: Уведомление ${notificationId} доставлено на ${deviceId}`);
   }
   
+  /**
+   * Сообщение пришло просроченным и не показано
+   * Досылать его не нужно, но и доставленным оно не считается
+   */
+  _handleExpired(notificationId, deviceId) {
+    this._removePending(notificationId, deviceId);
+  }
+  
+  _removePending(notificationId, deviceId) {
+    const pending = this.pendingMessages.get(deviceId);
+    if (!pending) return;
+    
+    const index = pending.findIndex(m => m.id === notificationId);
+    if (index >= 0) {
+      pending.splice(index, 1);
+      if (pending.length === 0) {
+        this.pendingMessages.delete(deviceId);
+      }
+    }
+  }
+  
   /**
    * Обработка клика
    */
@@ -346,17 +937,21 @@ class AndroidPushProvider {
   }
   
   /**
-   * Получить pending сообщения для устройства и очистить очередь (для polling)
+   * Получить pending сообщения для устройства (для polling)
+   * @param {boolean} [keep] - оставить сообщения в очереди до ACK
+   *   (Android SDK), иначе очередь очищается сразу после получения
    */
-  getPendingMessages(deviceId) {
+  getPendingMessages(deviceId, keep = false) {
     const now = Date.now();
     const messages = this.pendingMessages.get(deviceId) || [];
     
     // Фильтруем просроченные
     const valid = messages.filter(m => m.expiresAt > now);
     
-    // Очищаем очередь после получения
-    this.pendingMessages.delete(deviceId);
+    // Ответ опроса может потеряться - тогда сообщения уйдут в следующем
+    if (!keep) {
+      this.pendingMessages.delete(deviceId);
+    }
     
     // Возвращаем сообщения без служебных полей
     return valid.map(m => ({
@@ -367,10 +962,28 @@ class AndroidPushProvider {
       image: m.image,
       url: m.url,
       data: m.data,
-      timestamp: m.timestamp
+      channelId: m.channelId,
+      group: m.group,
+      priority: m.priority,
+      timestamp: m.timestamp,
+      expiresAt: m.expiresAt
     }));
   }
   
+  /**
+   * Подтверждение сообщений, полученных опросом с ?ack=1
+   * @param {string[]} ids - обработанные сообщения
+   * @param {string[]} [expired] - полученные просроченными и не показанные
+   */
+  ackPendingMessages(deviceId, ids, expired = []) {
+    for (const id of ids) {
+      this._handleAck(id, deviceId);
+    }
+    for (const id of expired) {
+      this._handleExpired(id, deviceId);
+    }
+  }
+  
   /**
    * Добавить сообщение в очередь для устройства (для polling режима)
    */
@@ -384,7 +997,10 @@ class AndroidPushProvider {
       image: payload.image,
       url: payload.url,
       data: payload.data || {},
-      timestamp: new Date().toISOString()
+      priority: payload.priority || 'high',
+      channelId: payload.channelId || 'default',
+      timestamp: new Date().toISOString(),
+      expiresAt: this._expiresAt(payload.ttl)
     };
     
     this._addPendingMessage(deviceId, message);
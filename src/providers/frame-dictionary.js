@@ -0,0 +1,63 @@
+const zlib = require('zlib');
+
+/**
+ * Предустановленный словарь для сжатия маленьких фреймов Android SDK
+ * permessage-deflate не помогает на фреймах в несколько сотен байт -
+ * словарь с типичными ключами и значениями даёт сжатие уже с первого фрейма.
+ * Содержимое словаря должно побайтно совпадать с FrameDictionary.java в SDK,
+ * при любом изменении нужно увеличить версию.
+ */
+const DICTIONARY_VERSION = 1;
+
+const DICTIONARY = Buffer.from(
+  '{"type":"prefetch","urls":["https://"]}' +
+  '{"type":"registered","deviceId":"","encoding":"json","dictionary":1,"timestamp":"2026-01-01T00:00:00.000Z"}' +
+  '{"type":"notification","id":"","title":"","body":"","icon":"https://","image":"https://","url":"https://",' +
+  '"data":{},"priority":"high","channelId":"default","timestamp":"2026-01-01T00:00:00.000Z"}',
+  'utf8'
+);
+
+// Маркер сжатого фрейма: первый байт 0x00 (фреймы MessagePack начинаются с map, JSON - с '{')
+const FRAME_MARKER = 0x00;
+
+/**
+ * Сжатие фрейма словарём
+ * @param {string|Buffer} frame - Закодированный фрейм
+ * @returns {Buffer|null} - Сжатый фрейм или null, если сжатие не дало выигрыша
+ */
+function compress(frame) {
+  const payload = Buffer.isBuffer(frame) ? frame : Buffer.from(frame, 'utf8');
+  const deflated = zlib.deflateRawSync(payload, { dictionary: DICTIONARY });
+  
+  if (deflated.length + 2 >= payload.length) {
+    return null;
+  }
+  
+  return Buffer.concat([Buffer.from([FRAME_MARKER, DICTIONARY_VERSION]), deflated]);
+}
+
+/**
+ * Распаковка фрейма (то же, что делает SDK; нужно инструментам и тестам)
+ * @param {Buffer} frame - Сжатый фрейм
+ * @returns {Buffer} - Исходный фрейм
+ */
+function decompress(frame) {
+  if (frame[0] !== FRAME_MARKER || frame[1] !== DICTIONARY_VERSION) {
+    throw new Error(`Неизвестный формат фрейма: ${frame[0]}/${frame[1]}`);
+  }
+  return zlib.inflateRawSync(frame.subarray(2), { dictionary: DICTIONARY });
+}
+
+/**
+ * Признак сжатого фрейма
+ */
+function isCompressed(frame) {
+  return Buffer.isBuffer(frame) && frame.length > 2 && frame[0] === FRAME_MARKER;
+}
+
+module.exports = {
+  DICTIONARY_VERSION,
+  compress,
+  decompress,
+  isCompressed
+};
@@ -0,0 +1,216 @@
+/**
+ * Минимальный кодек MessagePack для бинарных фреймов Android SDK
+ * Поддерживает nil, boolean, числа, строки, бинарные данные, массивы и объекты -
+ * этого достаточно для фреймов протокола /ws/android
+ */
+
+/**
+ * Кодирование значения в MessagePack
+ * @param {*} value - Значение
+ * @returns {Buffer}
+ */
+function encode(value) {
+  const chunks = [];
+  _encode(value, chunks);
+  return Buffer.concat(chunks);
+}
+
+function _encode(value, chunks) {
+  if (value === null || value === undefined) {
+    chunks.push(Buffer.from([0xc0]));
+  } else if (value === true) {
+    chunks.push(Buffer.from([0xc3]));
+  } else if (value === false) {
+    chunks.push(Buffer.from([0xc2]));
+  } else if (typeof value === 'number') {
+    _encodeNumber(value, chunks);
+  } else if (typeof value === 'string') {
+    const bytes = Buffer.from(value, 'utf8');
+    const length = bytes.length;
+    if (length < 32) {
+      chunks.push(Buffer.from([0xa0 | length]));
+    } else if (length < 0x100) {
+      chunks.push(Buffer.from([0xd9, length]));
+    } else if (length < 0x10000) {
+      const header = Buffer.alloc(3);
+      header[0] = 0xda;
+      header.writeUInt16BE(length, 1);
+      chunks.push(header);
+    } else {
+      const header = Buffer.alloc(5);
+      header[0] = 0xdb;
+      header.writeUInt32BE(length, 1);
+      chunks.push(header);
+    }
+    chunks.push(bytes);
+  } else if (Buffer.isBuffer(value)) {
+    const header = Buffer.alloc(5);
+    header[0] = 0xc6;
+    header.writeUInt32BE(value.length, 1);
+    chunks.push(header, value);
+  } else if (Array.isArray(value)) {
+    _encodeHeader(value.length, 0x90, 0xdc, 0xdd, chunks);
+    for (const item of value) {
+      _encode(item, chunks);
+    }
+  } else if (value instanceof Date) {
+    _encode(value.toISOString(), chunks);
+  } else if (typeof value === 'object') {
+    const keys = Object.keys(value).filter(key => value[key] !== undefined);
+    _encodeHeader(keys.length, 0x80, 0xde, 0xdf, chunks);
+    for (const key of keys) {
+      _encode(key, chunks);
+      _encode(value[key], chunks);
+    }
+  } else {
+    chunks.push(Buffer.from([0xc0]));
+  }
+}
+
+function _encodeNumber(value, chunks) {
+  if (Number.isInteger(value) && value >= -0x80000000 && value <= 0xffffffff) {
+    if (value >= 0 && value < 0x80) {
+      chunks.push(Buffer.from([value]));
+    } else if (value < 0 && value >= -32) {
+      chunks.push(Buffer.from([value & 0xff]));
+    } else if (value >= 0 && value < 0x100) {
+      chunks.push(Buffer.from([0xcc, value]));
+    } else if (value >= 0 && value < 0x10000) {
+      const buffer = Buffer.alloc(3);
+      buffer[0] = 0xcd;
+      buffer.writeUInt16BE(value, 1);
+      chunks.push(buffer);
+    } else if (value >= 0) {
+      const buffer = Buffer.alloc(5);
+      buffer[0] = 0xce;
+      buffer.writeUInt32BE(value, 1);
+      chunks.push(buffer);
+    } else {
+      const buffer = Buffer.alloc(5);
+      buffer[0] = 0xd2;
+      buffer.writeInt32BE(value, 1);
+      chunks.push(buffer);
+    }
+    return;
+  }
+  const buffer = Buffer.alloc(9);
+  buffer[0] = 0xcb;
+  buffer.writeDoubleBE(value, 1);
+  chunks.push(buffer);
+}
+
+function _encodeHeader(length, fix, type16, type32, chunks) {
+  if (length < 16) {
+    chunks.push(Buffer.from([fix | length]));
+  } else if (length < 0x10000) {
+    const header = Buffer.alloc(3);
+    header[0] = type16;
+    header.writeUInt16BE(length, 1);
+    chunks.push(header);
+  } else {
+    const header = Buffer.alloc(5);
+    header[0] = type32;
+    header.writeUInt32BE(length, 1);
+    chunks.push(header);
+  }
+}
+
+/**
+ * Декодирование MessagePack
+ * @param {Buffer} buffer - Бинарные данные
+ * @returns {*}
+ */
+function decode(buffer) {
+  const state = { buffer, offset: 0 };
+  const value = _decode(state);
+  if (state.offset !== buffer.length) {
+    throw new Error('MessagePack: лишние байты в конце фрейма');
+  }
+  return value;
+}
+
+function _decode(state) {
+  const { buffer } = state;
+  if (state.offset >= buffer.length) {
+    throw new Error('MessagePack: неожиданный конец фрейма');
+  }
+  const type = buffer[state.offset++];
+
+  if (type < 0x80) return type;
+  if (type >= 0xe0) return type - 0x100;
+  if ((type & 0xf0) === 0x80) return _decodeMap(state, type & 0x0f);
+  if ((type & 0xf0) === 0x90) return _decodeArray(state, type & 0x0f);
+  if ((type & 0xe0) === 0xa0) return _decodeString(state, type & 0x1f);
+
+  switch (type) {
+    case 0xc0: return null;
+    case 0xc2: return false;
+    case 0xc3: return true;
+    case 0xc4: return _decodeBinary(state, _read(state, 'readUInt8', 1));
+    case 0xc5: return _decodeBinary(state, _read(state, 'readUInt16BE', 2));
+    case 0xc6: return _decodeBinary(state, _read(state, 'readUInt32BE', 4));
+    case 0xca: return _read(state, 'readFloatBE', 4);
+    case 0xcb: return _read(state, 'readDoubleBE', 8);
+    case 0xcc: return _read(state, 'readUInt8', 1);
+    case 0xcd: return _read(state, 'readUInt16BE', 2);
+    case 0xce: return _read(state, 'readUInt32BE', 4);
+    case 0xcf: return Number(_read(state, 'readBigUInt64BE', 8));
+    case 0xd0: return _read(state, 'readInt8', 1);
+    case 0xd1: return _read(state, 'readInt16BE', 2);
+    case 0xd2: return _read(state, 'readInt32BE', 4);
+    case 0xd3: return Number(_read(state, 'readBigInt64BE', 8));
+    case 0xd9: return _decodeString(state, _read(state, 'readUInt8', 1));
+    case 0xda: return _decodeString(state, _read(state, 'readUInt16BE', 2));
+    case 0xdb: return _decodeString(state, _read(state, 'readUInt32BE', 4));
+    case 0xdc: return _decodeArray(state, _read(state, 'readUInt16BE', 2));
+    case 0xdd: return _decodeArray(state, _read(state, 'readUInt32BE', 4));
+    case 0xde: return _decodeMap(state, _read(state, 'readUInt16BE', 2));
+    case 0xdf: return _decodeMap(state, _read(state, 'readUInt32BE', 4));
+    default:
+      throw new Error(`MessagePack: неподдерживаемый тип 0x${type.toString(16)}`);
+  }
+}
+
+function _read(state, method, size) {
+  const value = state.buffer[method](state.offset);
+  state.offset += size;
+  return value;
+}
+
+function _decodeString(state, length) {
+  const value = state.buffer.toString('utf8', state.offset, state.offset + length);
+  state.offset += length;
+  return value;
+}
+
+function _decodeBinary(state, length) {
+  const value = state.buffer.subarray(state.offset, state.offset + length);
+  state.offset += length;
+  return value;
+}
+
+function _decodeArray(state, length) {
+  const result = new Array(length);
+  for (let i = 0; i < length; i++) {
+    result[i] = _decode(state);
+  }
+  return result;
+}
+
+function _decodeMap(state, length) {
+  const result = {};
+  for (let i = 0; i < length; i++) {
+    const key = _decode(state);
+    const value = _decode(state);
+    // Защита от подмены прототипа через ключ __proto__
+    if (key !== '__proto__') {
+      result[key] = value;
+    }
+  }
+  return result;
+}
+
+module.exports = {
+  encode,
+  decode
+};
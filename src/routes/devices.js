@@ -3,6 +3,9 @@ const router = express.Router();
 const { deviceService } = require('../services');
 const { apiKeyAuth, publicApiLimiter, deviceValidators } = require('../middleware');
 
+// Максимальное ожидание long-poll запроса (секунды), меньше типичных таймаутов прокси
+const MAX_POLL_WAIT_S = 25;
+
 /**
  * @route POST /api/v1/devices/register
  * @desc Регистрация нового устройства
@@ -217,12 +220,15 @@ router.post('/:id/unlink-user',
 
 /**
  * @route GET /api/v1/devices/:id/poll
- * @desc Получение pending уведомлений для устройства (polling для FlutterFlow)
+ * @desc Получение pending уведомлений для устройства (polling для FlutterFlow
+ *       и фоновый режим Android SDK). С ?wait=N запрос ждёт до N секунд,
+ *       если очередь пуста (long-poll). С ?ack=1 сообщения остаются в очереди
+ *       до POST /:id/ack, без него очередь очищается сразу
  * @access Public (с API ключом)
  */
 router.get('/:id/poll',
   apiKeyAuth,
-  (req, res) => {
+  async (req, res) => {
     try {
       const device = deviceService.getById(req.params.id);
       
@@ -236,14 +242,23 @@ router.get('/:id/poll',
       
       // Получаем pending уведомления для этого устройства
       const { androidPushProvider } = require('../providers');
-      const pendingMessages = androidPushProvider.getPendingMessages(req.params.id);
+      const keep = req.query.ack === '1';
+      let pendingMessages = androidPushProvider.getPendingMessages(req.params.id, keep);
+      
+      const wait = Math.min(parseInt(req.query.wait, 10) || 0, MAX_POLL_WAIT_S);
+      if (pendingMessages.length === 0 && wait > 0) {
+        await androidPushProvider.waitForMessages(req.params.id, wait * 1000);
+        pendingMessages = androidPushProvider.getPendingMessages(req.params.id, keep);
+      }
       
       console.log(`[POLL] Device ${req.params.id}: found ${pendingMessages?.length || 0} messages`);
       
       res.json({
         success: true,
         data: {
-          notifications: pendingMessages || []
+          notifications: pendingMessages || [],
+          // По нему SDK сравнивает сроки уведомлений, если часы телефона спешат
+          serverTime: Date.now()
         }
       });
     } catch (error) {
@@ -257,6 +272,86 @@ router.get('/:id/poll',
   }
 );
 
+/**
+ * @route POST /api/v1/devices/:id/ack
+ * @desc Подтверждение уведомлений, полученных опросом с ?ack=1
+ *       Body: { ids: [...], expired: [...] }
+ * @access Public (с API ключом)
+ */
+router.post('/:id/ack',
+  apiKeyAuth,
+  (req, res) => {
+    try {
+      const device = deviceService.getById(req.params.id);
+      
+      if (!device || device.appId !== req.app.id) {
+        return res.status(404).json({
+          success: false,
+          error: 'NOT_FOUND',
+          message: 'Устройство не найдено'
+        });
+      }
+      
+      const ids = Array.isArray(req.body.ids) ? req.body.ids : [];
+      const expired = Array.isArray(req.body.expired) ? req.body.expired : [];
+      
+      const { androidPushProvider } = require('../providers');
+      androidPushProvider.ackPendingMessages(req.params.id, ids, expired);
+      
+      res.json({
+        success: true,
+        data: {
+          acked: ids.length + expired.length
+        }
+      });
+    } catch (error) {
+      console.error('Ошибка подтверждения уведомлений:', error);
+      res.status(500).json({
+        success: false,
+        error: 'INTERNAL_ERROR',
+        message: 'Ошибка при подтверждении уведомлений'
+      });
+    }
+  }
+);
+
+/**
+ * @route GET /api/v1/devices/:id/templates/:templateId
+ * @desc Шаблон кампании для Android SDK, у которого его нет в кэше
+ * @access Public (с API ключом)
+ */
+router.get('/:id/templates/:templateId',
+  apiKeyAuth,
+  (req, res) => {
+    try {
+      const device = deviceService.getById(req.params.id);
+      const { androidPushProvider } = require('../providers');
+      const template = androidPushProvider.getTemplate(req.params.templateId);
+      
+      if (!device || device.appId !== req.app.id || !template || template.appId !== req.app.id) {
+        return res.status(404).json({
+          success: false,
+          error: 'NOT_FOUND',
+          message: 'Шаблон не найден'
+        });
+      }
+      
+      const { appId, ...content } = template;
+      res.json({
+        success: true,
+        data: content
+      });
+    } catch (error) {
+      console.error('Ошибка получения шаблона:', error);
+      res.status(500).json({
+        success: false,
+        error: 'INTERNAL_ERROR',
+        message: 'Ошибка при получении шаблона'
+      });
+    }
+  }
+);
+
 /**
  * @route DELETE /api/v1/devices/:id
  * @desc Удаление устройства по ID (когда разрешение отозвано)
@@ -440,4 +535,56 @@ router.post('/:id/user',
   }
 );
 
+/**
+ * @route POST /api/v1/devices/:id/metrics
+ * @desc Приём метрик доставки от Android SDK (гистограммы этапов и счётчики)
+ * @access Public (с API ключом)
+ */
+router.post('/:id/metrics',
+  apiKeyAuth,
+  (req, res) => {
+    try {
+      const { spans, counters, queues, from, to } = req.body;
+      
+      if (!spans || typeof spans !== 'object') {
+        return res.status(400).json({
+          success: false,
+          error: 'INVALID_METRICS',
+          message: 'spans обязателен'
+        });
+      }
+      
+      const device = deviceService.getById(req.params.id);
+      
+      if (!device || device.appId !== req.app.id) {
+        return res.status(404).json({
+          success: false,
+          error: 'NOT_FOUND',
+          message: 'Устройство не найдено'
+        });
+      }
+      
+      // Одна строка на пакет - для сбора внешним агрегатором логов
+      console.log('[METRICS]', JSON.stringify({
+        appId: req.app.id,
+        deviceId: device.id,
+        from,
+        to,
+        spans,
+        counters,
+        queues
+      }));
+      
+      res.json({ success: true });
+    } catch (error) {
+      console.error('Ошибка приёма метрик:', error);
+      res.status(500).json({
+        success: false,
+        error: 'INTERNAL_ERROR',
+        message: 'Ошибка при приёме метрик'
+      });
+    }
+  }
+);
+
 module.exports = router;
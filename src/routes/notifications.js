@@ -32,7 +32,10 @@ router.post('/send',
           ttl: req.body.ttl,
           priority: req.body.priority,
           tag: req.body.tag,
-          collapseKey: req.body.collapseKey
+          collapseKey: req.body.collapseKey,
+          // Ключ кампании для кэша шаблонов на устройствах и переменные {{name}} по userId или deviceId
+          templateId: req.body.templateId,
+          variables: req.body.variables
         },
         {
           platform: req.body.platform,
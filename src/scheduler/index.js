@@ -1,9 +1,13 @@
 const cron = require('node-cron');
 const { notificationService, applicationService } = require('../services');
 
+// За сколько минут до отправки рассылать запрос на предзагрузку медиа
+const PREFETCH_WINDOW_MINUTES = 30;
+
 class Scheduler {
   constructor() {
     this.jobs = [];
+    this.prefetched = new Set(); // ID уведомлений, для которых уже была предзагрузка
   }
   
   /**
@@ -13,6 +17,7 @@ class Scheduler {
     // Проверка запланированных уведомлений каждую минуту
     const scheduledJob = cron.schedule('* * * * *', async () => {
       await this.processScheduledNotifications();
+      this.processPrefetch();
     });
     this.jobs.push(scheduledJob);
     
@@ -60,6 +65,35 @@ class Scheduler {
     }
   }
   
+  /**
+   * Предзагрузка медиа для кампаний, которые скоро будут отправлены
+   */
+  processPrefetch() {
+    try {
+      const upcoming = notificationService.getUpcomingWithMedia(PREFETCH_WINDOW_MINUTES);
+      const upcomingIds = new Set(upcoming.map(n => n.id));
+      
+      for (const notification of upcoming) {
+        if (this.prefetched.has(notification.id)) continue;
+        this.prefetched.add(notification.id);
+        
+        const sent = notificationService.prefetchMedia(notification);
+        if (sent > 0) {
+          console.log(`Предзагрузка медиа для ${notification.id}: ${sent} устройств`);
+        }
+      }
+      
+      // Забываем уведомления, которые уже отправлены или отменены
+      for (const id of this.prefetched) {
+        if (!upcomingIds.has(id)) {
+          this.prefetched.delete(id);
+        }
+      }
+    } catch (error) {
+      console.error('Ошибка предзагрузки медиа:', error);
+    }
+  }
+  
   /**
    * Остановка планировщика
    */
@@ -232,6 +232,7 @@ process.on('SIGTERM', () => {
   console.log('Получен SIGTERM, завершение работы...');
   scheduler.stop();
   apnsProvider.shutdown();
+  androidPushProvider.shutdown();
   server.close(() => {
     console.log('Сервер остановлен');
     process.exit(0);
@@ -242,6 +243,7 @@ process.on('SIGINT', () => {
   console.log('Получен SIGINT, завершение работы...');
   scheduler.stop();
   apnsProvider.shutdown();
+  androidPushProvider.shutdown();
   server.close(() => {
     console.log('Сервер остановлен');
     process.exit(0);
@@ -69,6 +69,7 @@ class NotificationService {
     const notificationPayload = {
       ...payload,
       notificationId,
+      appId,
       apiUrl: config.serverUrl  // URL сервера для статистики
     };
     
@@ -273,6 +274,40 @@ class NotificationService {
     return stmt.all().map(n => this._formatNotification(n));
   }
   
+  /**
+   * Получение запланированных уведомлений с картинкой, которые отправятся
+   * в ближайшие minutes минут (для предзагрузки на устройства)
+   * icon SDK из сети не загружает, поэтому кампании только с ним не нужны
+   */
+  getUpcomingWithMedia(minutes) {
+    const stmt = db.prepare(`
+      SELECT * FROM notifications 
+      WHERE status = 'scheduled'
+        AND scheduled_at > datetime('now')
+        AND scheduled_at <= datetime('now', ?)
+        AND image IS NOT NULL
+      ORDER BY scheduled_at ASC
+    `);
+    return stmt.all(`+${minutes} minutes`).map(n => this._formatNotification(n));
+  }
+  
+  /**
+   * Рассылка запроса на предзагрузку медиа Android устройствам кампании
+   */
+  prefetchMedia(notification) {
+    const app = applicationService.getById(notification.appId);
+    if (!app || !app.androidEnabled || !androidPushProvider.initialized) {
+      return 0;
+    }
+    
+    const devices = deviceService.getForNotification(notification.appId, {
+      platform: 'android',
+      tags: notification.tags
+    });
+    
+    return androidPushProvider.prefetchBatch(devices, [notification.image]);
+  }
+  
   /**
    * Обработка клика по уведомлению
    */